@@ -0,0 +1,64 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import com.opencsv.CSVParserBuilder;
+import fr.univtln.pegliasco.tp.importer.Chunk;
+import fr.univtln.pegliasco.tp.importer.CsvChunkSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Découpage des fichiers CSV avec OpenCSV, tel que le fait le lecteur du pipeline d'import
+ * (empreinte SHA-256 des positions comprise).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvTokenizeBenchmark {
+
+    @Param({Datasets.RATINGS, Datasets.TAGS, Datasets.MOVIES})
+    String dataset;
+
+    @Param({"1", "10"})
+    int scale;
+
+    Path path;
+
+    @Setup
+    public void setup() {
+        path = Datasets.scaled(dataset, scale);
+    }
+
+    @Benchmark
+    public long openCsv(Blackhole blackhole) throws IOException {
+        long rows = 0;
+        try (InputStream in = Files.newInputStream(path);
+             CsvChunkSource source = new CsvChunkSource(in, new CSVParserBuilder().build(), 10000)) {
+            Chunk<List<String[]>> chunk;
+            while ((chunk = source.next()) != null) {
+                blackhole.consume(chunk.payload());
+                rows += chunk.rows();
+            }
+        }
+        return rows;
+    }
+}
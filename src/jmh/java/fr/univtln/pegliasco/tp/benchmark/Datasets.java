@@ -0,0 +1,130 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Copies agrandies des fichiers MovieLens embarqués, écrites dans un répertoire temporaire.
+ * À l'échelle n, le corps du fichier est répété n fois en décalant la première colonne (utilisateur
+ * ou film) à chaque copie, pour que les identifiants restent distincts d'une copie à l'autre.
+ */
+final class Datasets {
+    static final String RATINGS = "ratings";
+    static final String TAGS = "tags";
+    static final String MOVIES = "movies";
+
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final String[] COUNTRIES = {"USA", "UK", "France", "Germany", "Japan", "Italy", "Canada", "Spain"};
+
+    private Datasets() {
+    }
+
+    static Path scaled(String dataset, int scale) {
+        try {
+            Path path = Files.createTempFile("bench-" + dataset + "-x" + scale + "-", ".csv");
+            path.toFile().deleteOnExit();
+            List<String> lines = dataset.equals(MOVIES) ? moviesCreated() : readLines("Data/" + dataset + ".csv");
+            long idStride = maxFirstColumn(lines) + 1;
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writer.write(lines.get(0));
+                writer.newLine();
+                for (int copy = 0; copy < scale; copy++) {
+                    for (int i = 1; i < lines.size(); i++) {
+                        String line = lines.get(i);
+                        int comma = line.indexOf(',');
+                        writer.write(Long.toString(Long.parseLong(line.substring(0, comma)) + copy * idStride));
+                        writer.write(line, comma, line.length() - comma);
+                        writer.newLine();
+                    }
+                }
+            }
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<String[]> rows(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            com.opencsv.CSVParser parser = new com.opencsv.CSVParserBuilder().build();
+            List<String[]> rows = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(parser.parseLine(line));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Catalogue au format movies_created.csv (non embarqué) reconstitué à partir de movies.csv :
+     * dates, équipes et pays sont tirés de petits viviers de noms, comme dans les données enrichies.
+     */
+    private static List<String> moviesCreated() throws IOException {
+        com.opencsv.CSVParser parser = new com.opencsv.CSVParserBuilder().build();
+        Random random = new Random(42);
+        List<String> source = readLines("Data/movies.csv");
+        List<String> lines = new ArrayList<>(source.size());
+        lines.add("movieId,title,released,runtime,genres,director,writers,actors,plot,country,poster");
+        for (int i = 1; i < source.size(); i++) {
+            String[] tokens = parser.parseLine(source.get(i));
+            String released = String.format(Locale.ENGLISH, "%02d %s %d",
+                    1 + random.nextInt(28), MONTHS[random.nextInt(12)], 1930 + random.nextInt(90));
+            lines.add(String.join(",",
+                    tokens[0],
+                    quote(tokens[1]),
+                    released,
+                    Integer.toString(80 + random.nextInt(80)),
+                    tokens[2],
+                    person(random),
+                    person(random) + "|" + person(random),
+                    person(random) + "|" + person(random) + "|" + person(random) + "|" + person(random),
+                    quote("A story about " + tokens[1] + ", with a twist nobody saw coming."),
+                    COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    "https://example.com/posters/" + tokens[0] + ".jpg"));
+        }
+        return lines;
+    }
+
+    private static String person(Random random) {
+        return "Person " + random.nextInt(5000);
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static long maxFirstColumn(List<String> lines) {
+        long max = 0;
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            max = Math.max(max, Long.parseLong(line.substring(0, line.indexOf(','))));
+        }
+        return max;
+    }
+
+    private static List<String> readLines(String resource) throws IOException {
+        InputStream in = Datasets.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Ressource introuvable : " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return new ArrayList<>(reader.lines().toList());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import fr.univtln.pegliasco.tp.recommendation.HnswIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 au produit scalaire sur des vecteurs de films synthétiques (groupes gaussiens, comme des facteurs ALS) :
+ * recherche HNSW selon la largeur de file {@code efSearch}, contre le parcours exhaustif.
+ * Le rappel de chaque {@code efSearch} par rapport au parcours exhaustif est affiché à la préparation,
+ * à lire en regard de la latence mesurée.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HnswBenchmark {
+    private static final int COUNT = 10;
+    private static final int QUERIES = 1000;
+    private static final int CLUSTERS = 50;
+
+    @Param({"10000"})
+    int movies;
+
+    @Param({"32"})
+    int dims;
+
+    @Param({"10", "50", "100", "200"})
+    int efSearch;
+
+    HnswIndex index;
+    float[][] queries;
+    int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        float[][] centres = new float[CLUSTERS][dims];
+        for (float[] centre : centres) {
+            for (int f = 0; f < dims; f++) {
+                centre[f] = (float) random.nextGaussian();
+            }
+        }
+        index = new HnswIndex(dims, 16, 200, movies, 42);
+        for (int movie = 0; movie < movies; movie++) {
+            float[] centre = centres[random.nextInt(CLUSTERS)];
+            float[] vector = new float[dims];
+            for (int f = 0; f < dims; f++) {
+                vector[f] = centre[f] + (float) (random.nextGaussian() * 0.7);
+            }
+            index.add(movie, vector);
+        }
+        queries = new float[QUERIES][dims];
+        for (float[] query : queries) {
+            for (int f = 0; f < dims; f++) {
+                query[f] = (float) random.nextGaussian();
+            }
+        }
+
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Long> expected = new HashSet<>(index.exact(query, COUNT, id -> false));
+            for (Long id : index.search(query, COUNT, efSearch, id -> false)) {
+                if (expected.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%nrecall@%d efSearch=%d : %.3f%n", COUNT, efSearch, found / (double) (QUERIES * COUNT));
+    }
+
+    @Benchmark
+    public List<Long> hnsw() {
+        return index.search(nextQuery(), COUNT, efSearch, id -> false);
+    }
+
+    @Benchmark
+    public List<Long> bruteForce() {
+        return index.exact(nextQuery(), COUNT, id -> false);
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+}
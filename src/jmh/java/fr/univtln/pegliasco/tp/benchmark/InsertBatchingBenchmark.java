@@ -0,0 +1,148 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reproduit au niveau JDBC les requêtes qu'Hibernate envoie selon la génération d'identifiants
+ * (base PostgreSQL locale, -Dbench.jdbc.url, -Dbench.jdbc.user, -Dbench.jdbc.password) :
+ * <ul>
+ * <li>identity : un INSERT ... RETURNING id par ligne, le lot configuré est ignoré ;</li>
+ * <li>pooled : un nextval par bloc de 50 (pooled-lo) puis des INSERT en lot, réécrits
+ * en INSERT multi-lignes par reWriteBatchedInserts.</li>
+ * </ul>
+ * importBatch correspond à un lot de l'import JPA des notes, rateMovie à une requête
+ * POST de notation (une note et son entrée de cache dans une transaction).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBatchingBenchmark {
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Param({"identity", "pooled"})
+    String ids;
+
+    @Param({"10000"})
+    int batchSize;
+
+    Connection connection;
+    long nextId;
+    long blockEnd;
+    long row;
+
+    @Setup
+    public void setup() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/postgres");
+        if (ids.equals("pooled")) {
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+        connection = DriverManager.getConnection(url,
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", "postgres"));
+        try (Statement statement = connection.createStatement()) {
+            String id = ids.equals("identity") ? "id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY" : "id bigint PRIMARY KEY";
+            statement.execute("CREATE TEMP TABLE rating_bench (" + id + ", rate real, account_id bigint, movie_id bigint, timestamp bigint)");
+            statement.execute("CREATE TEMP TABLE rating_cache_bench (" + id + ", rate real, account_id bigint, movie_id bigint, timestamp bigint)");
+            statement.execute("CREATE TEMP SEQUENCE bench_seq INCREMENT BY " + ALLOCATION_SIZE);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE rating_bench, rating_cache_bench");
+        }
+        connection.commit();
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long importBatch() throws SQLException {
+        long inserted = insert("rating_bench", batchSize);
+        connection.commit();
+        return inserted;
+    }
+
+    @Benchmark
+    public long rateMovie() throws SQLException {
+        long inserted = insert("rating_bench", 1) + insert("rating_cache_bench", 1);
+        connection.commit();
+        return inserted;
+    }
+
+    private long insert(String table, int rows) throws SQLException {
+        if (ids.equals("identity")) {
+            long inserted = 0;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + table + " (rate, account_id, movie_id, timestamp) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < rows; i++) {
+                    bind(statement, 1);
+                    inserted += statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                }
+            }
+            return inserted;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + table + " (id, rate, account_id, movie_id, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                statement.setLong(1, nextId());
+                bind(statement, 2);
+                statement.addBatch();
+            }
+            return statement.executeBatch().length;
+        }
+    }
+
+    private void bind(PreparedStatement statement, int index) throws SQLException {
+        row++;
+        statement.setFloat(index, 0.5f + row % 10 / 2f);
+        statement.setLong(index + 1, row % 610 + 1);
+        statement.setLong(index + 2, row % 9742 + 1);
+        statement.setLong(index + 3, 964982703L + row);
+    }
+
+    // Optimiseur pooled-lo : un aller-retour vers la séquence tous les ALLOCATION_SIZE identifiants
+    private long nextId() throws SQLException {
+        if (nextId == blockEnd) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT nextval('bench_seq')")) {
+                resultSet.next();
+                nextId = resultSet.getLong(1);
+                blockEnd = nextId + ALLOCATION_SIZE;
+            }
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,74 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import fr.univtln.pegliasco.tp.importer.Chunk;
+import fr.univtln.pegliasco.tp.importer.LineBlock;
+import fr.univtln.pegliasco.tp.importer.MappedCsvSource;
+import fr.univtln.pegliasco.tp.importer.NumericLineReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parseur numérique sur projection mémoire, à comparer à {@link CsvTokenizeBenchmark} pour les notes et les tags.
+ * Le catalogue de films n'a pas de variante projetée : ses résumés peuvent contenir des retours à la ligne.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedParseBenchmark {
+
+    @Param({Datasets.RATINGS, Datasets.TAGS})
+    String dataset;
+
+    @Param({"1", "10"})
+    int scale;
+
+    Path path;
+
+    @Setup
+    public void setup() {
+        path = Datasets.scaled(dataset, scale);
+    }
+
+    @Benchmark
+    public long mapped(Blackhole blackhole) throws IOException {
+        boolean ratings = dataset.equals(Datasets.RATINGS);
+        long rows = 0;
+        try (MappedCsvSource source = new MappedCsvSource(path, 4 << 20)) {
+            Chunk<LineBlock> chunk;
+            while ((chunk = source.next()) != null) {
+                NumericLineReader line = new NumericLineReader(chunk.payload().bytes());
+                while (line.hasNext()) {
+                    blackhole.consume(line.nextLong());
+                    blackhole.consume(line.nextLong());
+                    if (ratings) {
+                        blackhole.consume(line.nextFloat());
+                    } else {
+                        blackhole.consume(line.nextText());
+                    }
+                    blackhole.consume(line.nextLong());
+                    if (line.endLine()) {
+                        rows++;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+}
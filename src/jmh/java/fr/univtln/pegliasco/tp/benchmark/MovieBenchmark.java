@@ -0,0 +1,86 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import fr.univtln.pegliasco.tp.importer.MovieCsvParser;
+import fr.univtln.pegliasco.tp.model.Gender;
+import fr.univtln.pegliasco.tp.model.Movie;
+import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion du catalogue de films : dates de sortie seules, lignes complètes, puis documents Elasticsearch.
+ * Les genres sont résolus en mémoire, sans base de données.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieBenchmark {
+
+    @Param({"1", "10"})
+    int scale;
+
+    List<String[]> rows;
+    List<Movie> movies;
+    Map<String, Gender> genres;
+
+    @Setup
+    public void setup() {
+        rows = Datasets.rows(Datasets.scaled(Datasets.MOVIES, scale));
+        genres = new ConcurrentHashMap<>();
+        MovieCsvParser parser = parser();
+        movies = new ArrayList<>(rows.size());
+        for (String[] tokens : rows) {
+            movies.add(parser.parse(tokens));
+        }
+    }
+
+    @Benchmark
+    public void parseDate(Blackhole blackhole) {
+        MovieCsvParser parser = parser();
+        for (String[] tokens : rows) {
+            blackhole.consume(parser.parseDate(tokens[MovieCsvParser.RELEASED]));
+        }
+    }
+
+    @Benchmark
+    public void parseRow(Blackhole blackhole) {
+        MovieCsvParser parser = parser();
+        for (String[] tokens : rows) {
+            blackhole.consume(parser.parse(tokens));
+        }
+    }
+
+    @Benchmark
+    public void toElastic(Blackhole blackhole) {
+        for (Movie movie : movies) {
+            blackhole.consume(MovieMapper.toElastic(movie));
+        }
+    }
+
+    private MovieCsvParser parser() {
+        return new MovieCsvParser(name -> genres.computeIfAbsent(name, n -> {
+            Gender gender = new Gender();
+            gender.setName(n);
+            return gender;
+        }));
+    }
+}
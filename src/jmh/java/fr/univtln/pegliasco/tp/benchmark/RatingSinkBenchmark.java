@@ -0,0 +1,184 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+import fr.univtln.pegliasco.tp.repository.PgCopyWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistance des lots de notes par COPY, vers un puits interchangeable :
+ * <ul>
+ * <li>memory : encodage au format COPY seul, les octets sont comptés puis jetés ;</li>
+ * <li>postgres : table temporaire d'une base locale (-Dbench.jdbc.url, -Dbench.jdbc.user, -Dbench.jdbc.password).</li>
+ * </ul>
+ * Chaque lot est validé dans sa propre transaction, comme dans RatingBulkRepository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RatingSinkBenchmark {
+    private static final String[] COLUMNS = {"rate", "account_id", "movie_id", "timestamp"};
+
+    @Param({"memory", "postgres"})
+    String sink;
+
+    @Param({"1", "10"})
+    int scale;
+
+    @Param({"10000", "50000"})
+    int batchSize;
+
+    List<RatingBatch> batches;
+    Connection connection;
+
+    @Setup
+    public void setup() throws SQLException {
+        batches = new ArrayList<>();
+        RatingBatch batch = new RatingBatch(batchSize);
+        for (String[] tokens : Datasets.rows(Datasets.scaled(Datasets.RATINGS, scale))) {
+            batch.add(Long.parseLong(tokens[0]), Long.parseLong(tokens[1]), Float.parseFloat(tokens[2]), Long.parseLong(tokens[3]));
+            if (batch.isFull()) {
+                batches.add(batch);
+                batch = new RatingBatch(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        if (sink.equals("postgres")) {
+            connection = DriverManager.getConnection(
+                    System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/postgres"),
+                    System.getProperty("bench.jdbc.user", "postgres"),
+                    System.getProperty("bench.jdbc.password", "postgres"));
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE rating_bench (rate real, account_id bigint, movie_id bigint, timestamp bigint)");
+            }
+            connection.setAutoCommit(false);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        if (connection != null) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE rating_bench");
+            }
+            connection.commit();
+        }
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public long copy() throws SQLException {
+        long rows = 0;
+        for (RatingBatch batch : batches) {
+            try (PgCopyWriter writer = connection != null
+                    ? new PgCopyWriter(connection, "rating_bench", COLUMNS)
+                    : new PgCopyWriter(new MemoryCopyIn())) {
+                for (int i = 0; i < batch.size(); i++) {
+                    writer.addFloat(batch.rate(i))
+                            .addLong(batch.accountId(i))
+                            .addLong(batch.movieId(i))
+                            .addLong(batch.timestamp(i))
+                            .endRow();
+                }
+                rows += writer.finish();
+            }
+            if (connection != null) {
+                connection.commit();
+            }
+        }
+        return rows;
+    }
+
+    // Puits en mémoire : compte les lignes reçues, sans conserver les octets
+    static final class MemoryCopyIn implements CopyIn {
+        private long rows;
+        private boolean active = true;
+
+        @Override
+        public void writeToCopy(byte[] buf, int off, int siz) {
+            for (int i = off; i < off + siz; i++) {
+                if (buf[i] == '\n') {
+                    rows++;
+                }
+            }
+        }
+
+        @Override
+        public void writeToCopy(ByteStreamWriter from) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flushCopy() {
+        }
+
+        @Override
+        public long endCopy() {
+            active = false;
+            return rows;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public int getFormat() {
+            return 0;
+        }
+
+        @Override
+        public int getFieldFormat(int field) {
+            return 0;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void cancelCopy() {
+            active = false;
+        }
+
+        @Override
+        public long getHandledRowCount() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fr.univtln.pegliasco.tp.benchmark;
+
+import fr.univtln.pegliasco.tp.importer.TagGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dédoublonnage des tags tel que le fait l'écrivain unique de l'import : normalisation du libellé,
+ * un tag par couple libellé / compte et un lien par couple tag / film.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagDedupBenchmark {
+
+    @Param({"1", "10", "100"})
+    int scale;
+
+    long[] accountIds;
+    long[] movieIds;
+    String[] names;
+
+    @Setup
+    public void setup() {
+        List<String[]> rows = Datasets.rows(Datasets.scaled(Datasets.TAGS, scale));
+        accountIds = new long[rows.size()];
+        movieIds = new long[rows.size()];
+        names = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String[] tokens = rows.get(i);
+            accountIds[i] = Long.parseLong(tokens[0]);
+            movieIds[i] = Long.parseLong(tokens[1]);
+            names[i] = tokens[2];
+        }
+    }
+
+    @Benchmark
+    public TagGraph dedup() {
+        TagGraph graph = new TagGraph();
+        for (int i = 0; i < names.length; i++) {
+            graph.add(accountIds[i], movieIds[i], names[i].trim().toLowerCase());
+        }
+        return graph;
+    }
+}
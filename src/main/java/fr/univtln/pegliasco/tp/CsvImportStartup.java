@@ -1,14 +1,21 @@
 package fr.univtln.pegliasco.tp;
 
+import fr.univtln.pegliasco.tp.importer.ImportDag;
+import fr.univtln.pegliasco.tp.importer.ImportExecutor;
 import fr.univtln.pegliasco.tp.services.AccountService;
 import fr.univtln.pegliasco.tp.services.CsvImporterService;
+import fr.univtln.pegliasco.tp.services.ElasticReindexService;
 import fr.univtln.pegliasco.tp.services.MovieElasticService;
+import fr.univtln.pegliasco.tp.services.SnapshotService;
 import io.quarkus.runtime.Startup;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
-import java.io.InputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import java.io.File;
@@ -24,6 +31,18 @@ public class CsvImportStartup {
     CsvImporterService csvImporterService;
     @Inject
     MovieElasticService movieElasticService;
+    @Inject
+    SnapshotService snapshotService;
+    @Inject
+    ElasticReindexService elasticReindexService;
+    @Inject
+    ImportExecutor importExecutor;
+
+    private static final String MOVIES = "Data/movies_created.csv";
+    private static final String RATINGS = "Data/ratings.csv";
+    private static final String TAGS = "Data/tags.csv";
+    private static final String LINKS = "Data/links.csv";
+    private static final List<String> SOURCES = List.of(MOVIES, RATINGS, TAGS, LINKS);
 
     @PostConstruct
     public void onStart() {
@@ -33,15 +52,44 @@ public class CsvImportStartup {
             logger.info("▶ Import CSV on startup...");
             waitForElasticsearchReady();
 
-            try (InputStream movieStream = getClass().getClassLoader().getResourceAsStream("Data/movies_created.csv")) {
-                csvImporterService.importMoviesFromCsv(movieStream);
+            // import.data-dir d'abord : des fichiers locaux permettent la lecture en projection mémoire
+            Map<String, URL> sources = new LinkedHashMap<>();
+            for (String source : SOURCES) {
+                sources.put(source, csvImporterService.resolve(source));
             }
 
-            try (InputStream ratingStream = getClass().getClassLoader().getResourceAsStream("Data/ratings.csv")) {
-                csvImporterService.importRatingsFromCsv(ratingStream);
+            // Une instance neuve recharge l'instantané du même jeu de données plutôt que les CSV
+            String fingerprint = null;
+            if (snapshotService.isEnabled()) {
+                fingerprint = snapshotService.fingerprint(sources);
+                if (snapshotService.restore(fingerprint)) {
+                    elasticReindexService.reindexAll();
+                    logger.info("✅ Snapshot restored successfully.");
+                    return;
+                }
             }
-            try (InputStream tagStream = getClass().getClassLoader().getResourceAsStream("Data/tags.csv")) {
-                csvImporterService.importTagsFromCsv(tagStream);
+
+            // Films et comptes d'abord, puis notes, tags et liens en parallèle ; l'indexation Elasticsearch
+            // attend les tags et les identifiants externes qu'elle recopie dans les documents
+            new ImportDag("startup", importExecutor.executor())
+                    .stage("movies", progress ->
+                            csvImporterService.importMoviesFromResource(sources.get(MOVIES), MOVIES, progress, false))
+                    .stage("accounts", progress ->
+                            csvImporterService.provisionRatingAccounts(sources.get(RATINGS), RATINGS, progress))
+                    .stage("ratings", progress ->
+                            csvImporterService.loadRatingsFromResource(sources.get(RATINGS), RATINGS, progress),
+                            "movies", "accounts")
+                    .stage("tags", progress ->
+                            csvImporterService.importTagsFromResource(sources.get(TAGS), TAGS, progress),
+                            "movies", "accounts")
+                    .stage("links", progress ->
+                            csvImporterService.importLinksFromResource(sources.get(LINKS), progress), "movies")
+                    .stage("elastic", progress -> elasticReindexService.reindexAll(progress),
+                            "movies", "tags", "links")
+                    .run();
+
+            if (fingerprint != null) {
+                snapshotService.export(fingerprint);
             }
 
             logger.info("✅ Import completed successfully.");
@@ -1,5 +1,6 @@
 package fr.univtln.pegliasco.tp.Interface;
 
+import io.smallrye.mutiny.Uni;
 import jakarta.ws.rs.*;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
@@ -33,5 +34,15 @@ public interface RecommendedInterface {
     @Path("/cold_recommendations")
     List<Long> getColdRecommendations(@QueryParam("top_n") int count);
 
+    // Variantes non bloquantes : aucun thread n'est retenu pendant l'attente de la réponse
+    @GET
+    @Path("/recommendations/{userId}")
+    Uni<List<Long>> getRecommendationsAsync(@PathParam("userId") Long userId,
+                                            @QueryParam("top_n") int count);
+
+    @GET
+    @Path("/cold_recommendations")
+    Uni<List<Long>> getColdRecommendationsAsync(@QueryParam("top_n") int count);
+
 
 }
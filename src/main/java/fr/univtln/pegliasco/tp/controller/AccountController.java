@@ -7,8 +7,10 @@ import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
 import fr.univtln.pegliasco.tp.services.*;
 import fr.univtln.pegliasco.tp.model.Account;
 import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
+import fr.univtln.pegliasco.tp.model.view.RatingChange;
 
 import fr.univtln.pegliasco.tp.services.MovieService;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -34,6 +36,8 @@ public class AccountController {
     RatingService ratingService;
     @Inject
     MovieElasticService movieElasticService;
+    @Inject
+    Event<RatingChange> ratingChanges;
 
     // Récupérer tous les comptes
     @GET
@@ -161,8 +165,7 @@ public class AccountController {
         rating.setRate(rate);
         ratingcache.setRate(rate);
 
-        ratingCacheService.addRatingToCache(ratingcache);
-        ratingService.addRating(rating);
+        ratingService.addRatingWithCache(rating, ratingcache);
         return Response.status(Response.Status.CREATED).entity(rating).build();
     }
 
@@ -206,6 +209,9 @@ public class AccountController {
             ratingCacheService.deleteRatingFromCache(cache.getId());
         }
         accountService.updateAccount(account);
+        for (RatingCache cache : caches) {
+            ratingChanges.fire(RatingChange.added(accountId, cache.getMovie().getId(), cache.getRate()));
+        }
         return Response.ok().build();
     }
 
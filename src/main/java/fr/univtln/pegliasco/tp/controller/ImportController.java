@@ -1,15 +1,25 @@
 package fr.univtln.pegliasco.tp.controller;
 
+import fr.univtln.pegliasco.tp.importer.CompressedInput;
+import fr.univtln.pegliasco.tp.importer.ImportJob;
+import fr.univtln.pegliasco.tp.importer.ImportProgress;
 import fr.univtln.pegliasco.tp.model.FolderPathRequest;
+import fr.univtln.pegliasco.tp.model.ImportJobStatus;
 import fr.univtln.pegliasco.tp.services.CsvImporterService;
 import fr.univtln.pegliasco.tp.model.ApiResponse;
 
+import fr.univtln.pegliasco.tp.services.ImportJobService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.core.Context;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
 
 @Path("/import")
 @Produces(MediaType.APPLICATION_JSON)
@@ -18,61 +28,181 @@ public class ImportController {
 
     @Inject
     CsvImporterService csvImporterService;
+    @Inject
+    ImportJobService importJobService;
+
+    // Import exécuté par un job : la réponse (202) contient l'id à suivre via /import/jobs/{id}
+    @FunctionalInterface
+    private interface CsvImport {
+        void run(URL resource, String source, ImportProgress progress) throws IOException;
+    }
 
     @POST
     @Path("/ratings")
-    public Response importRatingsFromCsv(FolderPathRequest folderPathRequest) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(folderPathRequest.getFolderPath())) {
-            if (is == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(new ApiResponse("Fichier non trouvé : " + folderPathRequest.getFolderPath()))
-                        .build();
-            }
-            csvImporterService.importRatingsFromCsv(is);
-            return Response.ok(new ApiResponse("CSV import completed successfully.")).build();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(new ApiResponse("Error occurred during CSV import: " + e.getMessage()))
-                    .build();
-        }
+    public Response importRatingsFromCsv(FolderPathRequest folderPathRequest, @Context UriInfo uriInfo) {
+        return submit("ratings", folderPathRequest, uriInfo, csvImporterService::importRatingsFromResource);
     }
 
     @POST
     @Path("/movies")
-    public Response importMoviesFromCsv(FolderPathRequest folderPathRequest) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(folderPathRequest.getFolderPath())) {
-            if (is == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(new ApiResponse("Fichier non trouvé : " + folderPathRequest.getFolderPath()))
-                        .build();
-            }
-            csvImporterService.importMoviesFromCsv(is);
-            return Response.ok(new ApiResponse("MovieElastic CSV import completed successfully.")).build();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(new ApiResponse("Error occurred during movie CSV import: " + e.getMessage()))
-                    .build();
-        }
+    public Response importMoviesFromCsv(FolderPathRequest folderPathRequest, @Context UriInfo uriInfo) {
+        return submit("movies", folderPathRequest, uriInfo, csvImporterService::importMoviesFromResource);
     }
 
     @POST
     @Path("/tags")
-    public Response importTagsFromCsv(FolderPathRequest folderPathRequest) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(folderPathRequest.getFolderPath())) {
-            if (is == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(new ApiResponse("Fichier non trouvé : " + folderPathRequest.getFolderPath()))
-                        .build();
-            }
-            csvImporterService.importTagsFromCsv(is);
-            return Response.ok(new ApiResponse("Tag CSV import completed successfully.")).build();
+    public Response importTagsFromCsv(FolderPathRequest folderPathRequest, @Context UriInfo uriInfo) {
+        return submit("tags", folderPathRequest, uriInfo, csvImporterService::importTagsFromResource);
+    }
+
+    @POST
+    @Path("/links")
+    public Response importLinksFromCsv(FolderPathRequest folderPathRequest, @Context UriInfo uriInfo) {
+        return submit("links", folderPathRequest, uriInfo,
+                (resource, source, progress) -> csvImporterService.importLinksFromResource(resource, progress));
+    }
+
+    // Archive zip MovieLens (movies, links, ratings, tags) lue sans extraction
+    @POST
+    @Path("/archive")
+    public Response importArchive(FolderPathRequest folderPathRequest, @Context UriInfo uriInfo) {
+        return submit("archive", folderPathRequest, uriInfo, csvImporterService::importArchiveFromResource);
+    }
+
+    // Corps envoyé (éventuellement par morceaux) lu et importé au fil de l'eau
+    @FunctionalInterface
+    private interface StreamImport {
+        void run(InputStream inputStream, String source, ImportProgress progress) throws IOException;
+    }
+
+    @POST
+    @Path("/ratings/upload")
+    @Consumes({"text/csv", MediaType.APPLICATION_OCTET_STREAM, "application/gzip", "application/zstd"})
+    public Response uploadRatings(InputStream body, @HeaderParam("Content-Encoding") String encoding,
+                                  @HeaderParam("Content-Length") Long length, @QueryParam("source") String source,
+                                  @Context UriInfo uriInfo) {
+        return upload("ratings", body, encoding, length, source, uriInfo, csvImporterService::importRatingsFromCsv);
+    }
+
+    @POST
+    @Path("/movies/upload")
+    @Consumes({"text/csv", MediaType.APPLICATION_OCTET_STREAM, "application/gzip", "application/zstd"})
+    public Response uploadMovies(InputStream body, @HeaderParam("Content-Encoding") String encoding,
+                                 @HeaderParam("Content-Length") Long length, @QueryParam("source") String source,
+                                 @Context UriInfo uriInfo) {
+        return upload("movies", body, encoding, length, source, uriInfo, csvImporterService::importMoviesFromCsv);
+    }
+
+    @POST
+    @Path("/tags/upload")
+    @Consumes({"text/csv", MediaType.APPLICATION_OCTET_STREAM, "application/gzip", "application/zstd"})
+    public Response uploadTags(InputStream body, @HeaderParam("Content-Encoding") String encoding,
+                               @HeaderParam("Content-Length") Long length, @QueryParam("source") String source,
+                               @Context UriInfo uriInfo) {
+        return upload("tags", body, encoding, length, source, uriInfo, csvImporterService::importTagsFromCsv);
+    }
+
+    @POST
+    @Path("/archive/upload")
+    @Consumes({"application/zip", MediaType.APPLICATION_OCTET_STREAM})
+    public Response uploadArchive(InputStream body, @QueryParam("source") String source, @Context UriInfo uriInfo) {
+        // Les positions suivies sont celles des entrées décompressées : pas de total en octets
+        return upload("archive", body, null, null, source, uriInfo, csvImporterService::importArchive);
+    }
+
+    @GET
+    @Path("/jobs")
+    public List<ImportJobStatus> getJobs() {
+        return importJobService.findAll().stream().map(ImportJobStatus::of).toList();
+    }
+
+    @GET
+    @Path("/jobs/{id}")
+    public Response getJob(@PathParam("id") String id) {
+        return importJobService.find(id)
+                .map(job -> Response.ok(ImportJobStatus.of(job)).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                        .entity(new ApiResponse("Job d'import inconnu : " + id))
+                        .build());
+    }
+
+    @DELETE
+    @Path("/jobs/{id}")
+    public Response cancelJob(@PathParam("id") String id) {
+        if (importJobService.find(id).isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ApiResponse("Job d'import inconnu : " + id))
+                    .build();
+        }
+        if (!importJobService.cancel(id)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ApiResponse("Le job d'import " + id + " est déjà terminé."))
+                    .build();
+        }
+        return Response.accepted(new ApiResponse("Annulation du job d'import " + id + " demandée.")).build();
+    }
+
+    /**
+     * Import exécuté dans le thread de la requête : le corps est décompressé et parsé à mesure qu'il arrive,
+     * sans copie sur disque ni en mémoire. Le paramètre source active la reprise sur points de contrôle :
+     * renvoyer le même fichier sous le même nom saute les lots déjà validés.
+     */
+    private Response upload(String type, InputStream body, String encoding, Long length, String source,
+                            UriInfo uriInfo, StreamImport streamImport) {
+        String jobSource = source != null ? source : "upload/" + type;
+        try {
+            ImportJob job = importJobService.run(type, jobSource, 0, body, progress -> {
+                CompressedInput input = CompressedInput.open(body, encoding);
+                if (!input.isCompressed() && length != null) {
+                    progress.setBytesTotal(length);
+                }
+                streamImport.run(input.stream(), source, progress);
+            });
+            Response.Status status = job.getStatus() == ImportJob.Status.FAILED
+                    ? Response.Status.INTERNAL_SERVER_ERROR
+                    : Response.Status.OK;
+            return Response.status(status)
+                    .entity(ImportJobStatus.of(job))
+                    .location(uriInfo.getBaseUriBuilder().path(ImportController.class).path("jobs").path(job.getId()).build())
+                    .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ApiResponse(e.getMessage()))
+                    .build();
+        }
+    }
+
+    private Response submit(String type, FolderPathRequest folderPathRequest, UriInfo uriInfo, CsvImport csvImport) {
+        String path = folderPathRequest.getFolderPath();
+        URL resource;
+        try {
+            resource = path == null ? null : csvImporterService.resolve(path);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ApiResponse(e.getMessage()))
+                    .build();
+        }
+        if (resource == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ApiResponse("Fichier non trouvé : " + path))
+                    .build();
+        }
+        try {
+            // Taille connue : permet l'estimation du temps restant
+            long size = resource.openConnection().getContentLengthLong();
+            ImportJob job = importJobService.submit(type, path, size, progress -> csvImport.run(resource, path, progress));
+            return Response.accepted(ImportJobStatus.of(job))
+                    .location(uriInfo.getBaseUriBuilder().path(ImportController.class).path("jobs").path(job.getId()).build())
+                    .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ApiResponse(e.getMessage()))
+                    .build();
         } catch (Exception e) {
             e.printStackTrace();
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(new ApiResponse("Error occurred during tag CSV import: " + e.getMessage()))
+                    .entity(new ApiResponse("Error occurred during " + type + " CSV import: " + e.getMessage()))
                     .build();
         }
     }
-}
\ No newline at end of file
+}
@@ -151,6 +151,27 @@ public class MovieController {
     }
 
 
+    // Récupérer un film par son identifiant IMDb ("tt0114709" ou "114709")
+    @GET
+    @Path("/imdb/{imdbId}")
+    public Response getMovieByImdbId(@PathParam("imdbId") String imdbId) {
+        String digits = imdbId.startsWith("tt") ? imdbId.substring(2) : imdbId;
+        try {
+            Movie movie = movieService.getMovieByImdbId(Long.parseLong(digits));
+            return movie != null ? Response.ok(movie).build() : Response.status(Response.Status.NOT_FOUND).build();
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid IMDb id").build();
+        }
+    }
+
+    // Récupérer un film par son identifiant TMDB
+    @GET
+    @Path("/tmdb/{tmdbId}")
+    public Response getMovieByTmdbId(@PathParam("tmdbId") long tmdbId) {
+        Movie movie = movieService.getMovieByTmdbId(tmdbId);
+        return movie != null ? Response.ok(movie).build() : Response.status(Response.Status.NOT_FOUND).build();
+    }
+
     // Récupérer un film par son ID
     @GET
     @Path("/{id}")
@@ -1,15 +1,18 @@
 package fr.univtln.pegliasco.tp.controller;
 
 import fr.univtln.pegliasco.tp.model.Movie;
-import fr.univtln.pegliasco.tp.repository.RatingRepository;
+import fr.univtln.pegliasco.tp.model.view.UserRecommendations;
+import fr.univtln.pegliasco.tp.recommendation.RecommendationCache;
 import fr.univtln.pegliasco.tp.services.RecommendedService;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestMediaType;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 import java.util.List;
-import java.util.function.Function;
-
-import fr.univtln.pegliasco.encryption.differential_privacy.ExponentialMechanism;
+import java.util.Map;
 import jakarta.ws.rs.core.Response;
 
 /**
@@ -22,6 +25,8 @@ import jakarta.ws.rs.core.Response;
  * The recommendations are further filtered using the MovieRandomSelector, which
  * applies
  * the Exponential Mechanism for differential privacy.
+ * When the remote recommendation API misses its deadline or is unavailable,
+ * the cold-start selection is computed locally from the rating statistics.
  *
  * Example usage:
  * GET /api/recommend?id=123&nb=5
@@ -33,20 +38,36 @@ import jakarta.ws.rs.core.Response;
 public class RecommendedController {
     @Inject
     RecommendedService recommendedService;
-    @Inject
-    RatingRepository ratingRepository;
 
+    // Non bloquant : l'attente de l'API distante n'occupe ni thread d'E/S ni worker
     @GET
-    public List<Movie> getRecommendations(@QueryParam("id") Long id, @QueryParam("nb") int nb) {
-        if (ratingRepository.hasNumberOfRatingsAboveLimit(id, 0)) {
-            return recommendedService.fetchRecommendations(id, nb);
+    public Uni<List<Movie>> getRecommendations(@QueryParam("id") Long id, @QueryParam("nb") int nb) {
+        return recommendedService.recommend(id, nb);
+    }
+
+    /**
+     * Recommandations pour une liste d'utilisateurs (corps JSON : tableau d'identifiants), renvoyées en NDJSON :
+     * une ligne par utilisateur, émise dès que sa tranche est prête.
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<UserRecommendations> getBatchRecommendations(List<Long> ids,
+            @QueryParam("nb") @DefaultValue("10") int nb) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("Liste d'utilisateurs vide");
         }
-        List<Movie> movies = recommendedService.fetchColdRecommendations(2 * nb);
-        Function<Movie, Double> utilityFunction = movie -> Math
-                .abs(ratingRepository.getAverageRating(movie.getId()) - 2.5) / 2.5;
-        ExponentialMechanism selector = new ExponentialMechanism(movies, utilityFunction);
-        return selector.selectRandomMovies(nb);
+        return recommendedService.recommendBatch(ids, nb);
+    }
 
+    // Films proches d'un film, du plus au moins semblable
+    @GET
+    @Path("/similar/{movieId}")
+    public Uni<List<Movie>> getSimilarMovies(@PathParam("movieId") Long movieId,
+            @QueryParam("nb") @DefaultValue("10") int nb) {
+        return recommendedService.similar(movieId, nb);
     }
 
     @POST
@@ -55,4 +76,19 @@ public class RecommendedController {
         recommendedService.init();
         return Response.noContent().build();
     }
+
+    // Compteurs du cache de recommandations : succès, échecs, évictions, expirations et invalidations
+    @GET
+    @Path("/cache/stats")
+    public RecommendationCache.Stats getCacheStats() {
+        return recommendedService.getCacheStats();
+    }
+
+    // Issue des requêtes (cache, local, distante, froid, repli), causes des échecs de l'API distante
+    // et durées de l'hydratation des films
+    @GET
+    @Path("/outcomes")
+    public Map<String, Long> getOutcomes() {
+        return recommendedService.getOutcomes();
+    }
 }
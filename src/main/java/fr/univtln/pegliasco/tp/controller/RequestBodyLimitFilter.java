@@ -0,0 +1,46 @@
+package fr.univtln.pegliasco.tp.controller;
+
+import fr.univtln.pegliasco.tp.model.ApiResponse;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Taille des corps de requête hors envois CSV.
+ * La limite de Quarkus (quarkus.http.limits.max-body-size) vaut pour toutes les routes et est relevée pour
+ * les envois /import/{type}/upload, lus en flux. Les autres routes lisent leur corps en mémoire : il est refusé
+ * avant lecture au-delà de http.body.max-size, ou s'il est envoyé par morceaux sans longueur annoncée.
+ */
+public class RequestBodyLimitFilter {
+    private static final Pattern UPLOAD_PATH = Pattern.compile("/?import/[^/]+/upload/?");
+
+    @Inject
+    @ConfigProperty(name = "http.body.max-size", defaultValue = "10M")
+    MemorySize maxSize;
+
+    @ServerRequestFilter
+    public Response limitBody(ContainerRequestContext context) {
+        if (UPLOAD_PATH.matcher(context.getUriInfo().getPath()).matches()) {
+            return null;
+        }
+        long length = context.getLength();
+        if (length > maxSize.asLongValue()) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity(new ApiResponse("Corps de requête trop volumineux (" + length + " octets)"))
+                    .build();
+        }
+        String transferEncoding = context.getHeaderString("Transfer-Encoding");
+        if (length < 0 && transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            return Response.status(Response.Status.LENGTH_REQUIRED)
+                    .entity(new ApiResponse("En-tête " + HttpHeaders.CONTENT_LENGTH + " requis"))
+                    .build();
+        }
+        return null;
+    }
+}
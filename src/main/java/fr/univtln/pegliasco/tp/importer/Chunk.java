@@ -0,0 +1,18 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Paquet de lignes circulant entre les étages du pipeline d'import.
+ *
+ * @param seq     numéro d'ordre du paquet dans la source
+ * @param rows    nombre de lignes lues dans la source pour ce paquet
+ * @param payload contenu du paquet (lignes brutes ou lot converti)
+ * @param start   position du premier octet du paquet dans la source
+ * @param end     position qui suit le dernier enregistrement du paquet
+ */
+public record Chunk<T>(long seq, int rows, T payload, SourcePosition start, SourcePosition end) {
+
+    // Même paquet, même position, contenu converti
+    public <U> Chunk<U> withPayload(U converted) {
+        return new Chunk<>(seq, rows, converted, start, end);
+    }
+}
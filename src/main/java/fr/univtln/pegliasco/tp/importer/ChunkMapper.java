@@ -0,0 +1,13 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Étage de validation/conversion, exécuté en parallèle sur plusieurs paquets.
+ * Les lignes rejetées doivent être comptées dans {@link ImportProgress}.
+ */
+@FunctionalInterface
+public interface ChunkMapper<R, T> {
+
+    // Renvoie le lot converti, jamais null : vide si aucune ligne n'est retenue, pour que l'écrivain
+    // enregistre tout de même la position du paquet (sinon le point de reprise resterait bloqué avant lui)
+    T map(R rows, ImportProgress progress) throws Exception;
+}
@@ -0,0 +1,15 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.io.IOException;
+
+/**
+ * Étage de lecture du pipeline : découpe une source en paquets successifs.
+ */
+public interface ChunkSource<R> extends AutoCloseable {
+
+    // Renvoie le paquet suivant, ou null en fin de source
+    Chunk<R> next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,13 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Étage d'écriture du pipeline ; plusieurs instances peuvent tourner en parallèle.
+ * Le paquet complet est transmis pour que l'écrivain puisse enregistrer sa position
+ * dans la même transaction que les données.
+ */
+@FunctionalInterface
+public interface ChunkWriter<T> {
+
+    // Persiste un lot et renvoie le nombre de lignes écrites
+    long write(Chunk<T> chunk) throws Exception;
+}
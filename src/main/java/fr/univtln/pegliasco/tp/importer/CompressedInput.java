@@ -0,0 +1,56 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Flux d'import décompressé à la volée : seul un tampon de quelques dizaines de Ko est gardé en mémoire,
+ * quelle que soit la taille du fichier envoyé.
+ *
+ * @param stream flux décompressé
+ * @param format "identity", "gzip" ou "zstd"
+ */
+public record CompressedInput(InputStream stream, String format) {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param encoding valeur de l'en-tête Content-Encoding ; absente ou "identity", le format est déduit
+     *                 des premiers octets (gzip 1f 8b, zstd 28 b5 2f fd)
+     * @throws IllegalArgumentException si l'encodage n'est pas pris en charge
+     */
+    public static CompressedInput open(InputStream in, String encoding) throws IOException {
+        InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        String format = encoding == null || encoding.isBlank() || "identity".equalsIgnoreCase(encoding.trim())
+                ? sniff(buffered)
+                : encoding.trim().toLowerCase();
+        return switch (format) {
+            case "gzip", "x-gzip" -> new CompressedInput(new GZIPInputStream(buffered, BUFFER_SIZE), "gzip");
+            case "zstd" -> new CompressedInput(new BufferedInputStream(new ZstdInputStream(buffered), BUFFER_SIZE), "zstd");
+            case "identity" -> new CompressedInput(buffered, "identity");
+            default -> throw new IllegalArgumentException("Encodage non pris en charge : " + encoding);
+        };
+    }
+
+    // Taille envoyée et octets décompressés ne coïncident plus : l'avancement en octets n'a alors pas de total
+    public boolean isCompressed() {
+        return !"identity".equals(format);
+    }
+
+    private static String sniff(InputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+        if (magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return "gzip";
+        }
+        if (magic.length == 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return "zstd";
+        }
+        return "identity";
+    }
+}
@@ -0,0 +1,48 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Archive zip de type MovieLens parcourue entrée par entrée en une seule lecture du flux, sans extraction
+ * sur disque. Le flux d'une entrée reste lisible jusqu'à l'appel suivant de {@link #nextEntry()} ;
+ * le fermer ne ferme pas l'archive, ce qui permet de le confier tel quel aux importeurs.
+ */
+public class CsvArchive implements AutoCloseable {
+    private final ZipInputStream zip;
+
+    public CsvArchive(InputStream in) {
+        this.zip = new ZipInputStream(in);
+    }
+
+    // Nom de l'entrée suivante sans son répertoire et en minuscules (ml-latest/ratings.csv -> ratings.csv),
+    // null en fin d'archive ; les répertoires sont sautés
+    public String nextEntry() throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                String name = entry.getName();
+                return name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+
+    public InputStream entryStream() {
+        return new FilterInputStream(zip) {
+            @Override
+            public void close() {
+                // L'entrée est refermée par nextEntry(), l'archive par CsvArchive.close()
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
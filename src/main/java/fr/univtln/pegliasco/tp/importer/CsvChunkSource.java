@@ -0,0 +1,199 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import com.opencsv.ICSVParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Source de paquets de lignes CSV brutes qui suit sa position exacte dans le flux : octets et lignes
+ * consommés, et empreinte SHA-256 du contenu déjà lu quand l'import est suivi par points de reprise
+ * ({@link ImportResume#hashing()}). L'en-tête est ignoré.
+ * <p>
+ * En reprise, le flux est relu sans être parsé jusqu'au point de reprise, l'empreinte est comparée
+ * à celle enregistrée (un fichier réécrit est refusé), puis les lots déjà validés sont sautés.
+ */
+public class CsvChunkSource implements ChunkSource<List<String[]>> {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final ICSVParser parser;
+    private final int chunkSize;
+    private final ImportResume resume;
+    private final MessageDigest digest;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLength;
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private long offset;
+    private long lineNumber;
+    private boolean started;
+    private long seq;
+
+    public CsvChunkSource(InputStream in, ICSVParser parser, int chunkSize) {
+        this(in, parser, chunkSize, ImportResume.fresh());
+    }
+
+    public CsvChunkSource(InputStream in, ICSVParser parser, int chunkSize, ImportResume resume) {
+        this.in = in;
+        this.parser = parser;
+        this.chunkSize = chunkSize;
+        this.resume = resume;
+        this.digest = resume.hashing() ? sha256() : null;
+    }
+
+    @Override
+    public Chunk<List<String[]>> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (resume.position().byteOffset() > 0) {
+                skipTo(resume.position());
+            }
+        }
+        skipCommitted();
+
+        SourcePosition start = new SourcePosition(offset, lineNumber, null);
+        if (offset == 0) {
+            readRecord(); // skip header
+        }
+
+        List<String[]> rows = new ArrayList<>(chunkSize);
+        String[] tokens;
+        // Un paquet s'arrête avant tout lot déjà validé pour ne jamais le chevaucher
+        while (rows.size() < chunkSize && !resume.committed().containsKey(offset) && (tokens = readRecord()) != null) {
+            rows.add(tokens);
+        }
+        return rows.isEmpty() ? null : new Chunk<>(seq++, rows.size(), rows, start, position());
+    }
+
+    // Position courante, empreinte comprise si elle est tenue
+    public SourcePosition position() {
+        if (digest == null) {
+            return new SourcePosition(offset, lineNumber, null);
+        }
+        try {
+            MessageDigest snapshot = (MessageDigest) digest.clone();
+            return new SourcePosition(offset, lineNumber, HexFormat.of().formatHex(snapshot.digest()));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void skipCommitted() throws IOException {
+        SourcePosition end;
+        while ((end = resume.committed().get(offset)) != null) {
+            skipTo(end);
+        }
+    }
+
+    // Avance sans parser jusqu'à la position cible et vérifie que le contenu n'a pas changé
+    private void skipTo(SourcePosition target) throws IOException {
+        while (offset < target.byteOffset() && readLine(false) != null) {
+            // lignes déjà importées
+        }
+        if (offset != target.byteOffset()) {
+            throw new IOException("Position de reprise " + target.byteOffset() + " introuvable (fichier tronqué ou modifié)");
+        }
+        if (digest != null && target.contentHash() != null
+                && !target.contentHash().equals(position().contentHash())) {
+            throw new IOException("Le fichier a été modifié avant l'octet " + target.byteOffset()
+                    + " depuis le dernier import ; réinitialiser son point de reprise");
+        }
+    }
+
+    private String[] readRecord() throws IOException {
+        String[] result = null;
+        do {
+            String text = readLine(true);
+            if (text == null) {
+                if (parser.isPending()) {
+                    throw new IOException("Champ entre guillemets non terminé ligne " + lineNumber);
+                }
+                return result;
+            }
+            String[] tokens = parser.parseLineMulti(text);
+            if (result == null) {
+                result = tokens;
+            } else if (tokens.length > 0) {
+                String[] combined = Arrays.copyOf(result, result.length + tokens.length);
+                System.arraycopy(tokens, 0, combined, result.length, tokens.length);
+                result = combined;
+            }
+        } while (parser.isPending());
+        return result;
+    }
+
+    // Lit une ligne physique (sans fin de ligne) en mettant à jour position et empreinte
+    private String readLine(boolean decode) throws IOException {
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (bufferPosition == bufferLength) {
+                bufferLength = in.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    if (!read) {
+                        return null;
+                    }
+                    break;
+                }
+            }
+            read = true;
+            int start = bufferPosition;
+            while (bufferPosition < bufferLength && buffer[bufferPosition] != '\n') {
+                bufferPosition++;
+            }
+            boolean newline = bufferPosition < bufferLength;
+            int consumed = bufferPosition - start + (newline ? 1 : 0);
+            if (digest != null) {
+                digest.update(buffer, start, consumed);
+            }
+            offset += consumed;
+            if (decode) {
+                append(start, bufferPosition - start);
+            }
+            if (newline) {
+                bufferPosition++;
+                break;
+            }
+        }
+        lineNumber++;
+        if (!decode) {
+            return "";
+        }
+        int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void append(int start, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+}
@@ -0,0 +1,133 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Graphe de dépendances entre étapes d'import. Une étape démarre dès que toutes ses dépendances ont réussi :
+ * les branches indépendantes s'exécutent en parallèle et la durée totale est celle de la plus longue branche.
+ * Si une étape échoue, ses dépendantes sont sautées ; les autres branches vont jusqu'au bout.
+ */
+public class ImportDag {
+    private static final Logger logger = Logger.getLogger(ImportDag.class.getName());
+
+    public enum Status { PENDING, SUCCEEDED, FAILED, SKIPPED }
+
+    private final String name;
+    private final ExecutorService executor;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    public ImportDag(String name, ExecutorService executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    // Les dépendances doivent être déclarées avant l'étape : l'ordre de déclaration est un ordre topologique
+    public ImportDag stage(String stageName, ImportTask task, String... dependsOn) {
+        if (stages.containsKey(stageName)) {
+            throw new IllegalArgumentException("Étape déjà déclarée : " + stageName);
+        }
+        List<Stage> dependencies = new ArrayList<>(dependsOn.length);
+        for (String dependency : dependsOn) {
+            Stage stage = stages.get(dependency);
+            if (stage == null) {
+                throw new IllegalArgumentException("Dépendance inconnue pour " + stageName + " : " + dependency);
+            }
+            dependencies.add(stage);
+        }
+        stages.put(stageName, new Stage(stageName, task, dependencies));
+        return this;
+    }
+
+    /**
+     * Exécute toutes les étapes et journalise le rapport de durées.
+     * @throws ImportException si au moins une étape a échoué ou a été sautée
+     */
+    public void run() {
+        long startNanos = System.nanoTime();
+        for (Stage stage : stages.values()) {
+            CompletableFuture<?>[] dependencies = stage.dependencies.stream()
+                    .map(dependency -> dependency.future)
+                    .toArray(CompletableFuture[]::new);
+            stage.future = CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> stage.execute(startNanos), executor);
+        }
+
+        Throwable firstError = null;
+        for (Stage stage : stages.values()) {
+            try {
+                stage.future.join();
+            } catch (CompletionException e) {
+                if (stage.status == Status.PENDING) {
+                    stage.status = Status.SKIPPED;
+                }
+                if (firstError == null && stage.status == Status.FAILED) {
+                    firstError = e.getCause();
+                }
+            }
+        }
+        report(System.nanoTime() - startNanos);
+
+        if (firstError != null) {
+            throw new ImportException("Import " + name + " en échec", firstError);
+        }
+    }
+
+    public Status getStatus(String stageName) {
+        return stages.get(stageName).status;
+    }
+
+    private void report(long wallNanos) {
+        long sumNanos = 0;
+        StringBuilder report = new StringBuilder("Import ").append(name).append(" :");
+        for (Stage stage : stages.values()) {
+            long duration = stage.endNanos - stage.startNanos;
+            sumNanos += duration;
+            report.append(String.format("%n  %-10s %-9s début +%6d ms  durée %7d ms  %,d lignes écrites, %,d rejetées",
+                    stage.name, stage.status, stage.offsetNanos / 1_000_000, duration / 1_000_000,
+                    stage.progress.getRowsWritten(), stage.progress.getRowsRejected()));
+        }
+        report.append(String.format("%n  total %d ms (somme des étapes %d ms)", wallNanos / 1_000_000, sumNanos / 1_000_000));
+        logger.info(report);
+    }
+
+    private static class Stage {
+        final String name;
+        final ImportTask task;
+        final List<Stage> dependencies;
+        final ImportProgress progress = new ImportProgress();
+        volatile Status status = Status.PENDING;
+        volatile long offsetNanos;
+        volatile long startNanos;
+        volatile long endNanos;
+        CompletableFuture<Void> future;
+
+        Stage(String name, ImportTask task, List<Stage> dependencies) {
+            this.name = name;
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+
+        void execute(long dagStartNanos) {
+            startNanos = System.nanoTime();
+            offsetNanos = startNanos - dagStartNanos;
+            try {
+                task.run(progress);
+                status = Status.SUCCEEDED;
+            } catch (Exception e) {
+                status = Status.FAILED;
+                logger.errorf(e, "Étape %s en échec", name);
+                throw new CompletionException(e);
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }
+    }
+}
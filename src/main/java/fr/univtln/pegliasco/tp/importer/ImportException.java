@@ -0,0 +1,8 @@
+package fr.univtln.pegliasco.tp.importer;
+
+public class ImportException extends RuntimeException {
+
+    public ImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,107 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteur dédié aux imports, distinct du ForkJoinPool commun et des threads HTTP.
+ * Chaque étage d'un pipeline occupe un thread (virtuel par défaut) pendant toute la durée de l'import.
+ */
+@ApplicationScoped
+public class ImportExecutor {
+
+    @Inject
+    @ConfigProperty(name = "import.executor.virtual-threads", defaultValue = "true")
+    boolean virtualThreads;
+
+    // 0 : un convertisseur par cœur disponible
+    @Inject
+    @ConfigProperty(name = "import.pipeline.mapper-threads", defaultValue = "0")
+    int mapperThreads;
+
+    @Inject
+    @ConfigProperty(name = "import.pipeline.writer-threads", defaultValue = "4")
+    int writerThreads;
+
+    @Inject
+    @ConfigProperty(name = "import.pipeline.queue-capacity", defaultValue = "8")
+    int queueCapacity;
+
+    @Inject
+    Config config;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        if (virtualThreads) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("import-", 0).factory());
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread thread = new Thread(r, "import-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    // Exécute un job d'import ; ses propres étages de pipeline tournent sur le même exécuteur
+    public Future<?> submit(ImportJob job, ImportTask task) {
+        return executor.submit(() -> job.execute(task));
+    }
+
+    /**
+     * Exécute un job dans le thread appelant, pour une source lisible seulement depuis ce thread (corps de requête).
+     * Ce thread n'appartient pas au job : il n'est jamais interrompu, l'annulation passe par le drapeau
+     * de progression et la fermeture de la source.
+     */
+    public void runInCaller(ImportJob job, ImportTask task) {
+        job.execute(task);
+    }
+
+    /**
+     * Crée un pipeline avec le parallélisme configuré pour son nom : import.pipeline.&lt;nom&gt;.mapper-threads,
+     * puis celui de sa famille (ratings pour ratings-mapped), puis la valeur globale.
+     * Les imports lancés en parallèle au démarrage se partagent ainsi les cœurs.
+     */
+    public ImportPipeline pipeline(String name) {
+        int mappers = budget(name, "mapper-threads", mapperThreads);
+        if (mappers <= 0) {
+            mappers = Runtime.getRuntime().availableProcessors();
+        }
+        int writers = budget(name, "writer-threads", writerThreads);
+        int capacity = budget(name, "queue-capacity", queueCapacity);
+        return new ImportPipeline(name, executor, mappers, writers, capacity);
+    }
+
+    private int budget(String name, String key, int defaultValue) {
+        Optional<Integer> value = config.getOptionalValue("import.pipeline." + name + "." + key, Integer.class);
+        int dash = name.indexOf('-');
+        if (value.isEmpty() && dash > 0) {
+            value = config.getOptionalValue("import.pipeline." + name.substring(0, dash) + "." + key, Integer.class);
+        }
+        return value.orElse(defaultValue);
+    }
+}
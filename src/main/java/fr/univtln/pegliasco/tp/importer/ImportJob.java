@@ -0,0 +1,134 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Import lancé en arrière-plan : son état et sa progression sont consultables pendant l'exécution.
+ */
+public class ImportJob {
+
+    public enum Status {
+        PENDING, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String type;
+    private final String source;
+    private final ImportProgress progress = new ImportProgress();
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.PENDING);
+    private final Date submittedAt = new Date();
+    private volatile Date finishedAt;
+    private volatile String error;
+    private volatile Future<?> future;
+    private volatile Closeable input;
+
+    public ImportJob(String id, String type, String source, long bytesTotal) {
+        this.id = id;
+        this.type = type;
+        this.source = source;
+        this.progress.setBytesTotal(bytesTotal);
+    }
+
+    // Corps du job, soumis tel quel à l'exécuteur d'import
+    void execute(ImportTask task) {
+        if (!status.compareAndSet(Status.PENDING, Status.RUNNING)) {
+            return;
+        }
+        try {
+            task.run(progress);
+            complete(Status.SUCCEEDED, null);
+        } catch (Exception e) {
+            if (progress.isCancelled()) {
+                complete(Status.CANCELLED, null);
+            } else {
+                complete(Status.FAILED, e.getCause() != null ? e.getCause().toString() : e.toString());
+            }
+        }
+    }
+
+    // Tâche de l'exécuteur d'import qui porte le job : son thread peut être interrompu à l'annulation
+    void attach(Future<?> future) {
+        this.future = future;
+    }
+
+    // Source lue par un thread qui n'appartient pas au job : fermée à l'annulation, elle débloque la lecture
+    public void closeOnCancel(Closeable input) {
+        this.input = input;
+    }
+
+    /**
+     * Demande l'arrêt du job. Les lots déjà validés restent en base et seront sautés à la reprise.
+     *
+     * @return false si le job était déjà terminé
+     */
+    public boolean cancel() {
+        if (status.get().isFinished()) {
+            return false;
+        }
+        progress.cancel();
+        // Un job encore en attente ne démarrera jamais
+        if (status.compareAndSet(Status.PENDING, Status.CANCELLED)) {
+            finishedAt = new Date();
+        }
+        Future<?> f = future;
+        if (f != null) {
+            f.cancel(true);
+        }
+        Closeable in = input;
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // La lecture en cours échoue de toute façon, le job passe à CANCELLED
+            }
+        }
+        return true;
+    }
+
+    private void complete(Status result, String message) {
+        progress.finish();
+        error = message;
+        finishedAt = new Date();
+        status.set(result);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public ImportProgress getProgress() {
+        return progress;
+    }
+
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
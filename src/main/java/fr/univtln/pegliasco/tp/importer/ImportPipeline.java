@@ -0,0 +1,142 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipeline d'import en trois étages reliés par des files bornées :
+ * <ol>
+ * <li>un lecteur qui découpe la source en paquets,</li>
+ * <li>plusieurs convertisseurs qui valident et transforment les paquets en parallèle,</li>
+ * <li>plusieurs écrivains qui persistent les lots convertis.</li>
+ * </ol>
+ * Une file pleine bloque l'étage amont (contre-pression), ce qui borne la mémoire utilisée
+ * quelle que soit la taille du fichier. La première erreur d'un étage annule les autres.
+ */
+public class ImportPipeline {
+    private static final Logger logger = Logger.getLogger(ImportPipeline.class.getName());
+    private static final Chunk<?> END = new Chunk<>(-1, 0, null, null, null);
+
+    private final String name;
+    private final ExecutorService executor;
+    private int mapperThreads;
+    private int writerThreads;
+    private int queueCapacity;
+
+    public ImportPipeline(String name, ExecutorService executor, int mapperThreads, int writerThreads, int queueCapacity) {
+        this.name = name;
+        this.executor = executor;
+        this.mapperThreads = Math.max(1, mapperThreads);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public ImportPipeline mappers(int mapperThreads) {
+        this.mapperThreads = Math.max(1, mapperThreads);
+        return this;
+    }
+
+    public ImportPipeline writers(int writerThreads) {
+        this.writerThreads = Math.max(1, writerThreads);
+        return this;
+    }
+
+    public ImportPipeline queueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        return this;
+    }
+
+    public <R, T> ImportProgress run(ChunkSource<R> source, ChunkMapper<R, T> mapper, ChunkWriter<T> writer) {
+        return run(source, mapper, writer, new ImportProgress());
+    }
+
+    public <R, T> ImportProgress run(ChunkSource<R> source, ChunkMapper<R, T> mapper, ChunkWriter<T> writer,
+                                     ImportProgress progress) {
+        BlockingQueue<Chunk<R>> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Chunk<T>> mapped = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger activeMappers = new AtomicInteger(mapperThreads);
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+        List<Future<Void>> futures = new ArrayList<>();
+
+        progress.start();
+
+        futures.add(stages.submit(() -> {
+            Chunk<R> chunk;
+            while ((chunk = source.next()) != null) {
+                if (progress.isCancelled()) {
+                    throw new CancellationException("Import " + name + " annulé");
+                }
+                progress.addRead(chunk.rows());
+                if (chunk.end() != null) {
+                    progress.advanceTo(chunk.end().byteOffset());
+                }
+                parsed.put(chunk);
+            }
+            for (int i = 0; i < mapperThreads; i++) {
+                parsed.put(end());
+            }
+            return null;
+        }));
+
+        for (int i = 0; i < mapperThreads; i++) {
+            futures.add(stages.submit(() -> {
+                Chunk<R> chunk;
+                while ((chunk = parsed.take()) != END) {
+                    // Même vide, le lot va à l'écrivain, qui enregistre la plage d'octets pour la reprise
+                    mapped.put(chunk.withPayload(mapper.map(chunk.payload(), progress)));
+                }
+                // Le dernier convertisseur terminé libère les écrivains
+                if (activeMappers.decrementAndGet() == 0) {
+                    for (int w = 0; w < writerThreads; w++) {
+                        mapped.put(end());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (int i = 0; i < writerThreads; i++) {
+            futures.add(stages.submit(() -> {
+                Chunk<T> chunk;
+                while ((chunk = mapped.take()) != END) {
+                    progress.addWritten(writer.write(chunk));
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                stages.take().get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new ImportException("Échec du pipeline d'import " + name, e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ImportException("Pipeline d'import " + name + " interrompu", e);
+        } finally {
+            progress.finish();
+        }
+
+        logger.infof("Pipeline %s (%d convertisseurs, %d écrivains) : %s", name, mapperThreads, writerThreads, progress);
+        return progress;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Chunk<T> end() {
+        return (Chunk<T>) END;
+    }
+}
@@ -0,0 +1,114 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs d'avancement d'un import, mis à jour par les différents étages du pipeline.
+ */
+public class ImportProgress {
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    // Taille de la source en octets, 0 si inconnue (l'ETA n'est alors pas calculable)
+    private volatile long bytesTotal;
+    private volatile boolean cancelled;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public void addRead(long rows) {
+        rowsRead.addAndGet(rows);
+    }
+
+    public void addWritten(long rows) {
+        rowsWritten.addAndGet(rows);
+    }
+
+    public void reject() {
+        rowsRejected.incrementAndGet();
+    }
+
+    // Position atteinte par le lecteur ; les paquets arrivent dans l'ordre du fichier
+    public void advanceTo(long byteOffset) {
+        bytesRead.accumulateAndGet(byteOffset, Math::max);
+    }
+
+    public void setBytesTotal(long bytesTotal) {
+        this.bytesTotal = Math.max(0, bytesTotal);
+    }
+
+    // Demande l'arrêt : le lecteur du pipeline cesse de produire au paquet suivant
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public double getElapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    public double getRowsPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? getRowsWritten() / elapsed : 0;
+    }
+
+    /**
+     * Temps restant estimé à partir du débit en octets depuis le début de l'import.
+     * Une reprise saute d'un coup la partie déjà importée, ce qui fausse l'estimation au premier paquet seulement.
+     *
+     * @return le nombre de secondes restantes, -1 si la taille de la source est inconnue
+     */
+    public double getEtaSeconds() {
+        long total = bytesTotal;
+        long read = bytesRead.get();
+        if (total <= 0 || read <= 0) {
+            return -1;
+        }
+        if (endNanos != 0 || read >= total) {
+            return 0;
+        }
+        return getElapsedSeconds() * (total - read) / read;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lues, %d écrites, %d rejetées en %.2fs (%.0f lignes/s)",
+                getRowsRead(), getRowsWritten(), getRowsRejected(), getElapsedSeconds(), getRowsPerSecond());
+    }
+}
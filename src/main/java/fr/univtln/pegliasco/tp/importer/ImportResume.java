@@ -0,0 +1,25 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Point de reprise d'un import : position jusqu'à laquelle tout est validé, et lots validés
+ * au-delà (terminés dans le désordre par des écrivains parallèles) qu'il faut sauter.
+ *
+ * @param position  dernière position contiguë validée
+ * @param committed lots déjà validés après cette position, indexés par octet de début
+ * @param hashing   tenir l'empreinte SHA-256 du contenu lu, enregistrée avec chaque lot pour vérifier la reprise
+ */
+public record ImportResume(SourcePosition position, NavigableMap<Long, SourcePosition> committed, boolean hashing) {
+
+    // Import suivi par points de reprise : l'empreinte est toujours tenue
+    public ImportResume(SourcePosition position, NavigableMap<Long, SourcePosition> committed) {
+        this(position, committed, true);
+    }
+
+    // Import sans point de reprise : aucune empreinte à calculer, rien à sauter
+    public static ImportResume fresh() {
+        return new ImportResume(SourcePosition.START, new TreeMap<>(), false);
+    }
+}
@@ -0,0 +1,9 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Traitement exécuté par un job d'import ; il alimente la progression fournie et s'arrête quand elle est annulée.
+ */
+@FunctionalInterface
+public interface ImportTask {
+    void run(ImportProgress progress) throws Exception;
+}
@@ -0,0 +1,13 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plage d'octets d'un fichier CSV alignée sur des fins de ligne, transmise telle quelle (sans copie)
+ * aux convertisseurs du pipeline.
+ *
+ * @param bytes vue sur la plage, en-tête exclu
+ * @param lines nombre de lignes physiques de la plage
+ */
+public record LineBlock(ByteBuffer bytes, int lines) {
+}
@@ -0,0 +1,126 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Ensemble de {@code long} à adressage ouvert (sondage linéaire), sans objet par élément.
+ * Non synchronisé.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    // 0 sert de marqueur de case vide : sa présence est suivie à part
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    // true si la valeur n'était pas encore présente
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int slot = slot(value);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] values = new long[size];
+        int[] index = {0};
+        forEach(value -> values[index[0]++] = value);
+        return values;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    private int slot(long value) {
+        // Mélange de Murmur3 (fmix64) pour répartir les clés composées
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length << 1];
+        mask = keys.length - 1;
+        size = containsZero ? 1 : 0;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Source de paquets CSV lue par projection mémoire ({@link FileChannel#map}) : chaque paquet est une plage
+ * d'octets du fichier alignée sur les fins de ligne, que les convertisseurs décodent en parallèle sans copie.
+ * <p>
+ * Le lecteur ne parse rien : il découpe, compte les lignes et, si l'import est suivi par points de reprise, tient
+ * la même empreinte SHA-256 que {@link CsvChunkSource} : ces points restent valables d'un lecteur à l'autre.
+ */
+public class MappedCsvSource implements ChunkSource<LineBlock> {
+    // Une projection ne peut dépasser Integer.MAX_VALUE octets
+    private static final long MAX_MAPPING = 1L << 30;
+    private static final int SCAN_SIZE = 1 << 13;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkBytes;
+    private final ImportResume resume;
+    private final MessageDigest digest;
+
+    private long offset;
+    private long lineNumber;
+    private boolean started;
+    private long seq;
+
+    public MappedCsvSource(Path path, int chunkBytes) throws IOException {
+        this(path, chunkBytes, ImportResume.fresh());
+    }
+
+    public MappedCsvSource(Path path, int chunkBytes, ImportResume resume) throws IOException {
+        this.digest = resume.hashing() ? sha256() : null;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunkBytes = (int) Math.min(Math.max(chunkBytes, SCAN_SIZE), MAX_MAPPING);
+        this.resume = resume;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Chunk<LineBlock> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (resume.position().byteOffset() > 0) {
+                skipTo(resume.position());
+            }
+        }
+        skipCommitted();
+        if (offset >= size) {
+            return null;
+        }
+
+        SourcePosition start = new SourcePosition(offset, lineNumber, null);
+        // Un paquet s'arrête avant tout lot déjà validé pour ne jamais le chevaucher
+        Long nextCommitted = resume.committed().higherKey(offset);
+        long limit = Math.min(size, offset + chunkBytes);
+        long end = nextCommitted != null && nextCommitted <= limit ? nextCommitted : lineEnd(limit);
+
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset);
+        boolean header = offset == 0;
+        int lines = consume(mapped);
+
+        ByteBuffer bytes = mapped;
+        if (header) {
+            int first = indexOf(mapped, (byte) '\n', 0);
+            int from = first < 0 ? mapped.limit() : first + 1;
+            bytes = mapped.slice(from, mapped.limit() - from);
+            lines--;
+        }
+        if (lines <= 0 && offset >= size) {
+            return null;
+        }
+        return new Chunk<>(seq++, lines, new LineBlock(bytes, lines), start, position());
+    }
+
+    // Position courante, empreinte comprise si elle est tenue
+    public SourcePosition position() {
+        if (digest == null) {
+            return new SourcePosition(offset, lineNumber, null);
+        }
+        try {
+            MessageDigest snapshot = (MessageDigest) digest.clone();
+            return new SourcePosition(offset, lineNumber, HexFormat.of().formatHex(snapshot.digest()));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void skipCommitted() throws IOException {
+        SourcePosition end;
+        while ((end = resume.committed().get(offset)) != null) {
+            skipTo(end);
+        }
+    }
+
+    // Avance jusqu'à la position cible en calculant l'empreinte, puis vérifie que le contenu n'a pas changé
+    private void skipTo(SourcePosition target) throws IOException {
+        if (target.byteOffset() > size) {
+            throw new IOException("Position de reprise " + target.byteOffset() + " introuvable (fichier tronqué ou modifié)");
+        }
+        while (offset < target.byteOffset()) {
+            long length = Math.min(MAX_MAPPING, target.byteOffset() - offset);
+            consume(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+        }
+        if (digest != null && target.contentHash() != null
+                && !target.contentHash().equals(position().contentHash())) {
+            throw new IOException("Le fichier a été modifié avant l'octet " + target.byteOffset()
+                    + " depuis le dernier import ; réinitialiser son point de reprise");
+        }
+    }
+
+    // Ajoute la plage à l'empreinte et à la position ; renvoie le nombre de lignes physiques qu'elle contient
+    private int consume(ByteBuffer bytes) {
+        int lines = 0;
+        int limit = bytes.limit();
+        for (int i = 0; i < limit; i++) {
+            if (bytes.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (limit > 0 && bytes.get(limit - 1) != '\n') {
+            lines++; // dernière ligne sans fin de ligne
+        }
+        if (digest != null) {
+            digest.update(bytes.duplicate());
+        }
+        offset += limit;
+        lineNumber += lines;
+        return lines;
+    }
+
+    // Première fin de ligne à partir de la position donnée (exclue du paquet suivant)
+    private long lineEnd(long from) throws IOException {
+        if (from >= size) {
+            return size;
+        }
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long position = from - 1;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            int newline = indexOf(scan, (byte) '\n', 0, read);
+            if (newline >= 0) {
+                return position + newline + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte value, int from) {
+        return indexOf(bytes, value, from, bytes.limit());
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,159 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import fr.univtln.pegliasco.tp.model.Gender;
+import fr.univtln.pegliasco.tp.model.Movie;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Convertit une ligne du catalogue de films en entité, au format movies_created.csv ou movies.csv de MovieLens.
+ * Les listes séparées par '|' sont découpées sans expression régulière et les noms répétés
+ * (personnes, pays, genres) passent par un dictionnaire commun. Une instance est partagée
+ * par tous les convertisseurs d'un import.
+ */
+public class MovieCsvParser {
+
+    // Schéma du fichier movies_created.csv
+    public static final int ID = 0;
+    public static final int TITLE = 1;
+    public static final int RELEASED = 2;
+    public static final int RUNTIME = 3;
+    public static final int GENRES = 4;
+    public static final int DIRECTOR = 5;
+    public static final int WRITERS = 6;
+    public static final int ACTORS = 7;
+    public static final int PLOT = 8;
+    public static final int COUNTRY = 9;
+    public static final int POSTER = 10;
+    public static final int COLUMNS = 11;
+
+    // Schéma movies.csv d'une archive MovieLens : movieId,title (année),genres
+    public static final int MOVIELENS_COLUMNS = 3;
+    private static final String NO_GENRES = "(no genres listed)";
+
+    // Formats acceptés pour la date de sortie, immuables donc partageables entre threads
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ofPattern("dd MMM uuuu", Locale.ENGLISH).withResolverStyle(ResolverStyle.STRICT), // 22 Nov 1995
+            DateTimeFormatter.ofPattern("uuuu-MM-dd", Locale.ENGLISH).withResolverStyle(ResolverStyle.STRICT),  // 1995-12-29
+            DateTimeFormatter.ofPattern("uuuu/MM/dd", Locale.ENGLISH).withResolverStyle(ResolverStyle.STRICT)   // 1995/12/29
+    };
+
+    private final StringDictionary dictionary = new StringDictionary();
+    private final Function<String, Gender> genres;
+    // Dernier format reconnu, essayé en premier : une colonne garde en général le même format
+    private volatile int dateFormat;
+
+    public MovieCsvParser(Function<String, Gender> genres) {
+        this.genres = genres;
+    }
+
+    public boolean accepts(String[] tokens) {
+        return tokens.length >= COLUMNS || tokens.length == MOVIELENS_COLUMNS;
+    }
+
+    public Movie parse(String[] tokens) {
+        if (tokens.length == MOVIELENS_COLUMNS) {
+            return parseMovieLens(tokens);
+        }
+        Movie movie = new Movie();
+        movie.setId(Long.parseLong(tokens[ID].trim()));
+        movie.setTitle(tokens[TITLE].trim());
+        Date released = parseDate(tokens[RELEASED].trim());
+        movie.setYear(released != null ? released : new Date());
+        movie.setRuntime(Integer.parseInt(tokens[RUNTIME].trim()));
+
+        List<String> genreNames = split(tokens[GENRES]);
+        List<Gender> genderList = new ArrayList<>(genreNames.size());
+        for (String genreName : genreNames) {
+            genderList.add(genres.apply(genreName));
+        }
+        movie.setGenders(genderList);
+
+        movie.setDirector(dictionary.intern(tokens[DIRECTOR].trim()));
+        movie.setWriters(split(tokens[WRITERS]));
+        movie.setActors(split(tokens[ACTORS]));
+        movie.setPlot(tokens[PLOT].trim());
+        movie.setCountry(dictionary.intern(tokens[COUNTRY].trim()));
+        movie.setPoster(tokens[POSTER].trim());
+        return movie;
+    }
+
+    // Catalogue MovieLens : l'année de sortie est extraite du titre, "Toy Story (1995)"
+    private Movie parseMovieLens(String[] tokens) {
+        Movie movie = new Movie();
+        movie.setId(Long.parseLong(tokens[ID].trim()));
+        String title = tokens[TITLE].trim();
+        Date released = null;
+        int length = title.length();
+        if (length >= 6 && title.charAt(length - 1) == ')' && title.charAt(length - 6) == '(') {
+            try {
+                int year = Integer.parseInt(title, length - 5, length - 1, 10);
+                released = Date.from(LocalDate.of(year, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+                title = title.substring(0, length - 6).trim();
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        movie.setTitle(title);
+        movie.setYear(released != null ? released : new Date());
+
+        List<Gender> genderList = new ArrayList<>();
+        if (!tokens[2].trim().equals(NO_GENRES)) {
+            for (String genreName : split(tokens[2])) {
+                genderList.add(genres.apply(genreName));
+            }
+        }
+        movie.setGenders(genderList);
+        return movie;
+    }
+
+    // Nombre de noms distincts rencontrés depuis la création du parseur
+    public int distinctNames() {
+        return dictionary.size();
+    }
+
+    // Découpe sur '|' en ignorant les éléments vides ; chaque nom est dédoublonné
+    List<String> split(String value) {
+        List<String> names = new ArrayList<>(4);
+        int start = 0;
+        int length = value.length();
+        while (start <= length) {
+            int end = value.indexOf('|', start);
+            if (end < 0) {
+                end = length;
+            }
+            String name = value.substring(start, end).trim();
+            if (!name.isEmpty()) {
+                names.add(dictionary.intern(name));
+            }
+            start = end + 1;
+        }
+        return names;
+    }
+
+    // null si la date est absente ("Unknown") ou dans aucun format connu
+    public Date parseDate(String value) {
+        if (value.isEmpty() || value.equalsIgnoreCase("Unknown")) {
+            return null;
+        }
+        int preferred = dateFormat;
+        for (int i = 0; i < DATE_FORMATS.length; i++) {
+            int format = (preferred + i) % DATE_FORMATS.length;
+            try {
+                LocalDate date = LocalDate.parse(value, DATE_FORMATS[format]);
+                dateFormat = format;
+                return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return null;
+    }
+}
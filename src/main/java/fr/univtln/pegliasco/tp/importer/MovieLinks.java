@@ -0,0 +1,52 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.Arrays;
+
+/**
+ * Correspondances film / identifiants externes (links.csv) en colonnes primitives.
+ * Un identifiant absent vaut 0.
+ */
+public class MovieLinks {
+    private long[] movieIds = new long[1024];
+    private long[] imdbIds = new long[1024];
+    private long[] tmdbIds = new long[1024];
+    private int size;
+
+    public void add(long movieId, long imdbId, long tmdbId) {
+        if (size == movieIds.length) {
+            movieIds = Arrays.copyOf(movieIds, size * 2);
+            imdbIds = Arrays.copyOf(imdbIds, size * 2);
+            tmdbIds = Arrays.copyOf(tmdbIds, size * 2);
+        }
+        movieIds[size] = movieId;
+        imdbIds[size] = imdbId;
+        tmdbIds[size] = tmdbId;
+        size++;
+    }
+
+    public void addAll(MovieLinks other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.movieIds[i], other.imdbIds[i], other.tmdbIds[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long movieId(int i) {
+        return movieIds[i];
+    }
+
+    public long imdbId(int i) {
+        return imdbIds[i];
+    }
+
+    public long tmdbId(int i) {
+        return tmdbIds[i];
+    }
+}
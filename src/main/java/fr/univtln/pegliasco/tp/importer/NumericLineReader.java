@@ -0,0 +1,191 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Décodeur de lignes CSV à champs numériques, directement depuis les octets d'un {@link LineBlock} :
+ * les entiers et décimaux sont lus chiffre par chiffre dans des types primitifs, sans String intermédiaire.
+ * <p>
+ * Un champ invalide ou manquant marque la ligne comme mal formée ; {@link #endLine()} passe alors à la
+ * ligne suivante et renvoie false pour que l'appelant la rejette. Les champs en trop sont ignorés.
+ * Une instance n'est pas partagée entre threads.
+ */
+public final class NumericLineReader {
+    private static final double[] POW10 = new double[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final ByteBuffer bytes;
+    private final int limit;
+    private int position;
+    private boolean malformed;
+    private byte[] text = new byte[64];
+
+    public NumericLineReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.limit = bytes.limit();
+    }
+
+    // Saute les lignes vides ; false une fois la plage épuisée
+    public boolean hasNext() {
+        while (position < limit) {
+            byte b = bytes.get(position);
+            if (b != '\n' && b != '\r') {
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    public long nextLong() {
+        int start = position;
+        boolean negative = position < limit && bytes.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        byte b;
+        while (position < limit && (b = bytes.get(position)) >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            position++;
+            digits++;
+        }
+        if (digits == 0 || digits > 18 || !endField()) {
+            malformed = true;
+            skipField(start);
+            return 0;
+        }
+        return negative ? -value : value;
+    }
+
+    // Décimal sans exposant (ex. 3.5) ; les autres écritures passent par Float.parseFloat
+    public float nextFloat() {
+        int start = position;
+        boolean negative = position < limit && bytes.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        byte b;
+        while (position < limit && ((b = bytes.get(position)) >= '0' && b <= '9' || b == '.' && fraction < 0)) {
+            if (b == '.') {
+                fraction = 0;
+            } else {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            }
+            position++;
+        }
+        if (digits > 0 && digits <= 18 && endField()) {
+            double value = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+            return (float) (negative ? -value : value);
+        }
+        position = start;
+        String field = nextText();
+        try {
+            return Float.parseFloat(field);
+        } catch (NumberFormatException e) {
+            malformed = true;
+            return 0;
+        }
+    }
+
+    // Champ texte, éventuellement entre guillemets ("" pour un guillemet, fins de ligne permises)
+    public String nextText() {
+        int length = 0;
+        if (position < limit && bytes.get(position) == '"') {
+            position++;
+            while (true) {
+                if (position >= limit) {
+                    malformed = true;
+                    return "";
+                }
+                byte b = bytes.get(position++);
+                if (b == '"') {
+                    if (position < limit && bytes.get(position) == '"') {
+                        position++;
+                    } else {
+                        break;
+                    }
+                }
+                length = append(length, b);
+            }
+            if (!endField()) {
+                malformed = true;
+                skipField(position);
+            }
+        } else {
+            byte b;
+            while (position < limit && (b = bytes.get(position)) != ',' && b != '\n') {
+                length = append(length, b);
+                position++;
+            }
+            if (length > 0 && text[length - 1] == '\r') {
+                length--;
+            }
+            endField();
+        }
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Termine la ligne courante.
+     *
+     * @return false si l'un de ses champs était invalide ou manquant
+     */
+    public boolean endLine() {
+        while (position < limit && bytes.get(position++) != '\n') {
+            // champs ignorés
+        }
+        boolean valid = !malformed;
+        malformed = false;
+        return valid;
+    }
+
+    // Consomme le séparateur qui suit un champ ; false si le champ n'est pas terminé proprement
+    private boolean endField() {
+        if (position >= limit) {
+            return true;
+        }
+        byte b = bytes.get(position);
+        if (b == ',') {
+            position++;
+            return true;
+        }
+        return b == '\n' || b == '\r';
+    }
+
+    // Abandonne un champ invalide jusqu'au séparateur suivant, sans quitter la ligne
+    private void skipField(int from) {
+        position = from;
+        byte b;
+        while (position < limit && (b = bytes.get(position)) != ',' && b != '\n') {
+            position++;
+        }
+        if (position < limit && bytes.get(position) == ',') {
+            position++;
+        }
+    }
+
+    private int append(int length, byte b) {
+        if (length == text.length) {
+            text = Arrays.copyOf(text, length * 2);
+        }
+        text[length] = b;
+        return length + 1;
+    }
+}
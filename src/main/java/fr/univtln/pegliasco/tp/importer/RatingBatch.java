@@ -0,0 +1,60 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Lot de notes stocké en colonnes de types primitifs, sans entité ni objet par ligne.
+ * Sert de format d'échange entre le parsing CSV et le chargement COPY.
+ */
+public class RatingBatch {
+    private final long[] accountIds;
+    private final long[] movieIds;
+    private final float[] rates;
+    private final long[] timestamps;
+    private int size;
+
+    public RatingBatch(int capacity) {
+        this.accountIds = new long[capacity];
+        this.movieIds = new long[capacity];
+        this.rates = new float[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    public void add(long accountId, long movieId, float rate, long timestamp) {
+        accountIds[size] = accountId;
+        movieIds[size] = movieId;
+        rates[size] = rate;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    public boolean isFull() {
+        return size == accountIds.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long accountId(int i) {
+        return accountIds[i];
+    }
+
+    public long movieId(int i) {
+        return movieIds[i];
+    }
+
+    public float rate(int i) {
+        return rates[i];
+    }
+
+    public long timestamp(int i) {
+        return timestamps[i];
+    }
+}
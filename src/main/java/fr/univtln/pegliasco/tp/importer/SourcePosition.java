@@ -0,0 +1,13 @@
+package fr.univtln.pegliasco.tp.importer;
+
+/**
+ * Position dans un fichier source, toujours alignée sur une fin d'enregistrement CSV.
+ *
+ * @param byteOffset  nombre d'octets consommés depuis le début du fichier
+ * @param lineNumber  nombre de lignes physiques consommées
+ * @param contentHash empreinte SHA-256 (hexadécimale) des octets consommés, ou null si non calculée
+ */
+public record SourcePosition(long byteOffset, long lineNumber, String contentHash) {
+
+    public static final SourcePosition START = new SourcePosition(0, 0, null);
+}
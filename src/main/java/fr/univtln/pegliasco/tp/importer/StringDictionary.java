@@ -0,0 +1,20 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire de chaînes partagé par les convertisseurs d'un import : chaque valeur distincte
+ * (acteur, pays, genre...) n'existe qu'une fois en mémoire, les doublons sont laissés au ramasse-miettes.
+ */
+public class StringDictionary {
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    public String intern(String value) {
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,57 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Générateur déterministe des comptes créés pour les utilisateurs inconnus d'un import.
+ * Le nom et l'email dérivent de l'identifiant, ce qui les rend uniques sans nouvel essai.
+ * Le mot de passe stocké (format "hash:sel") ne correspond à aucun mot de passe connu :
+ * ces comptes ne peuvent pas se connecter tant qu'il n'a pas été réinitialisé.
+ */
+public final class SyntheticAccounts {
+    private static final String[] FIRST_NAMES = {
+            "Alice", "Bruno", "Camille", "David", "Emma", "Fabien", "Gabrielle", "Hugo",
+            "Inès", "Julien", "Karine", "Louis", "Manon", "Nicolas", "Océane", "Paul",
+            "Quentin", "Rose", "Samuel", "Théo", "Ursule", "Victor", "William", "Yasmine",
+            "Zoé", "Antoine", "Bérénice", "Clément", "Diane", "Étienne", "Flore", "Guillaume"
+    };
+    private static final String[] LAST_NAMES = {
+            "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit", "Durand",
+            "Leroy", "Moreau", "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David",
+            "Bertrand", "Roux", "Vincent", "Fournier", "Morel", "Girard", "Andre", "Mercier",
+            "Dupont", "Lambert", "Bonnet", "Francois", "Martinez", "Legrand", "Garnier", "Faure"
+    };
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private SyntheticAccounts() {
+    }
+
+    public static String prenom(long id) {
+        return FIRST_NAMES[(int) (mix(id) & 0x1F)];
+    }
+
+    public static String nom(long id) {
+        return LAST_NAMES[(int) ((mix(id) >>> 5) & 0x1F)] + "_" + prenom(id) + "_" + id;
+    }
+
+    public static String email(long id) {
+        return "user" + id + "@example.com";
+    }
+
+    // Empreinte aléatoire sans mot de passe associé ; SecureRandom partagé, sûr entre threads
+    public static String lockedPassword() {
+        byte[] bytes = new byte[48];
+        RANDOM.nextBytes(bytes);
+        HexFormat hex = HexFormat.of();
+        return hex.formatHex(bytes, 0, 32) + ":" + hex.formatHex(bytes, 32, 48);
+    }
+
+    // SplitMix64 : même identifiant, même nom
+    private static long mix(long id) {
+        long z = id + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,81 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vocabulaire de tags (un tag par couple compte / libellé) et liens tag-film dédoublonnés,
+ * indexés par identifiants primitifs. Aucune entité n'est chargée ni fusionnée pour le construire.
+ * <p>
+ * Un lien est codé sur un {@code long} : index du tag sur les 32 bits de poids fort,
+ * identifiant du film sur les 32 bits de poids faible. Non synchronisé.
+ */
+public class TagGraph {
+    private final Map<TagKey, Integer> index = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private long[] accountIds = new long[256];
+    private final LongHashSet links = new LongHashSet(1024);
+
+    private record TagKey(long accountId, String name) {
+    }
+
+    /**
+     * Ajoute le tag (s'il est nouveau) et son lien vers le film.
+     *
+     * @return false si le film ne tient pas sur 32 bits (ligne à rejeter)
+     */
+    public boolean add(long accountId, long movieId, String name) {
+        if (movieId < 0 || movieId > 0xFFFFFFFFL) {
+            return false;
+        }
+        Integer tag = index.get(new TagKey(accountId, name));
+        if (tag == null) {
+            tag = names.size();
+            index.put(new TagKey(accountId, name), tag);
+            names.add(name);
+            if (tag == accountIds.length) {
+                accountIds = Arrays.copyOf(accountIds, tag * 2);
+            }
+            accountIds[tag] = accountId;
+        }
+        links.add(((long) tag << 32) | movieId);
+        return true;
+    }
+
+    // Index du tag du compte portant ce libellé, ou -1 s'il n'a pas été lu
+    public int find(long accountId, String name) {
+        Integer tag = index.get(new TagKey(accountId, name));
+        return tag == null ? -1 : tag;
+    }
+
+    public int tagCount() {
+        return names.size();
+    }
+
+    public String name(int tag) {
+        return names.get(tag);
+    }
+
+    public long accountId(int tag) {
+        return accountIds[tag];
+    }
+
+    public int linkCount() {
+        return links.size();
+    }
+
+    public LongHashSet links() {
+        return links;
+    }
+
+    public static int linkTag(long link) {
+        return (int) (link >>> 32);
+    }
+
+    public static long linkMovie(long link) {
+        return link & 0xFFFFFFFFL;
+    }
+}
@@ -12,7 +12,8 @@ import java.util.List;
 @Entity
 public class Gender {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gender_seq")
+    @SequenceGenerator(name = "gender_seq", sequenceName = "gender_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -0,0 +1,49 @@
+package fr.univtln.pegliasco.tp.model;
+
+import fr.univtln.pegliasco.tp.importer.SourcePosition;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Lot importé, enregistré dans la même transaction que ses données. Les lots contigus sont
+ * ensuite regroupés dans {@link ImportCheckpoint}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "import_batch", indexes = @Index(name = "idx_import_batch_source", columnList = "source, start_offset"))
+public class ImportBatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 500)
+    private String source;
+
+    @Column(name = "start_offset")
+    private long startOffset;
+
+    @Column(name = "end_offset")
+    private long endOffset;
+
+    @Column(name = "end_line")
+    private long endLine;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    public static ImportBatch of(String source, SourcePosition start, SourcePosition end) {
+        ImportBatch batch = new ImportBatch();
+        batch.setSource(source);
+        batch.setStartOffset(start.byteOffset());
+        batch.setEndOffset(end.byteOffset());
+        batch.setEndLine(end.lineNumber());
+        batch.setContentHash(end.contentHash());
+        return batch;
+    }
+
+    public SourcePosition endPosition() {
+        return new SourcePosition(endOffset, endLine, contentHash);
+    }
+}
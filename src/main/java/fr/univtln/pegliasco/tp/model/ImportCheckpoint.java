@@ -0,0 +1,37 @@
+package fr.univtln.pegliasco.tp.model;
+
+import fr.univtln.pegliasco.tp.importer.SourcePosition;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Point de reprise durable d'un fichier source : tout ce qui précède {@code byteOffset} est importé.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+    @Id
+    @Column(length = 500)
+    private String source;
+
+    @Column(name = "byte_offset")
+    private long byteOffset;
+
+    @Column(name = "line_number")
+    private long lineNumber;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
+    public SourcePosition toPosition() {
+        return new SourcePosition(byteOffset, lineNumber, contentHash);
+    }
+}
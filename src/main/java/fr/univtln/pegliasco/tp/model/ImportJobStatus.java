@@ -0,0 +1,47 @@
+package fr.univtln.pegliasco.tp.model;
+
+import fr.univtln.pegliasco.tp.importer.ImportJob;
+import fr.univtln.pegliasco.tp.importer.ImportProgress;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Vue JSON d'un job d'import et de son avancement
+@Getter
+@Setter
+public class ImportJobStatus {
+    private String id;
+    private String type;
+    private String source;
+    private ImportJob.Status status;
+    private long rowsRead;
+    private long rowsPersisted;
+    private long rowsRejected;
+    private double rowsPerSecond;
+    private double elapsedSeconds;
+    // -1 tant que l'estimation n'est pas possible
+    private double etaSeconds;
+    private Date submittedAt;
+    private Date finishedAt;
+    private String error;
+
+    public static ImportJobStatus of(ImportJob job) {
+        ImportProgress progress = job.getProgress();
+        ImportJobStatus status = new ImportJobStatus();
+        status.setId(job.getId());
+        status.setType(job.getType());
+        status.setSource(job.getSource());
+        status.setStatus(job.getStatus());
+        status.setRowsRead(progress.getRowsRead());
+        status.setRowsPersisted(progress.getRowsWritten());
+        status.setRowsRejected(progress.getRowsRejected());
+        status.setRowsPerSecond(progress.getRowsPerSecond());
+        status.setElapsedSeconds(progress.getElapsedSeconds());
+        status.setEtaSeconds(job.getStatus().isFinished() ? 0 : progress.getEtaSeconds());
+        status.setSubmittedAt(job.getSubmittedAt());
+        status.setFinishedAt(job.getFinishedAt());
+        status.setError(job.getError());
+        return status;
+    }
+}
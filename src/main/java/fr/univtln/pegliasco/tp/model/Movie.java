@@ -48,6 +48,13 @@ public class Movie {
     @Column(length = 1000)
     private String poster;
 
+    // Identifiants externes issus de links.csv (index hash, voir import.sql et db/external-id-indexes.sql)
+    @Column(name = "imdb_id")
+    private Long imdbId;
+
+    @Column(name = "tmdb_id")
+    private Long tmdbId;
+
     @OneToMany(mappedBy = "movie", orphanRemoval = true, fetch = FetchType.EAGER)
     @JsonIgnore
     private List<Rating> ratings;
@@ -9,8 +9,10 @@ import lombok.Setter;
 @Setter
 @Entity
 public class Rating {
+    // Séquence à pas de 50 (optimiseur pooled-lo) : Hibernate regroupe les INSERT en lots JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rating_seq")
+    @SequenceGenerator(name = "rating_seq", sequenceName = "rating_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -11,7 +11,8 @@ import lombok.Setter;
 @Entity
 public class RatingCache {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rating_cache_seq")
+    @SequenceGenerator(name = "rating_cache_seq", sequenceName = "rating_cache_seq", allocationSize = 50)
     private Long id;
 
     @Column
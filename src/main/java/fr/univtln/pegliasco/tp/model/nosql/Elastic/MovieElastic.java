@@ -15,6 +15,10 @@ public class MovieElastic {
     private List<String> genders;
     private String poster;
     private List<String> tags;
+    // Date de sortie complète (millisecondes epoch) : year ne garde que l'année, pour la recherche
+    private Long released;
+    private Long imdbId;
+    private Long tmdbId;
 
     public MovieElastic() {
     }
@@ -124,4 +128,22 @@ public class MovieElastic {
     public void setActors(List<String> actors) {
         this.actors = actors;
     }
+    public Long getReleased() {
+        return released;
+    }
+    public void setReleased(Long released) {
+        this.released = released;
+    }
+    public Long getImdbId() {
+        return imdbId;
+    }
+    public void setImdbId(Long imdbId) {
+        this.imdbId = imdbId;
+    }
+    public Long getTmdbId() {
+        return tmdbId;
+    }
+    public void setTmdbId(Long tmdbId) {
+        this.tmdbId = tmdbId;
+    }
 }
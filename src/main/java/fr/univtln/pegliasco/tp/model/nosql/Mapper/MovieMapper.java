@@ -4,6 +4,7 @@ import fr.univtln.pegliasco.tp.model.Movie;
 import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
 
 import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,7 +24,7 @@ public class MovieMapper {
                 ? movie.getTags().stream().map(t -> t.getName()).collect(Collectors.toList())
                 : null;
 
-        return new MovieElastic(
+        MovieElastic movieElastic = new MovieElastic(
                 movie.getId(),
                 movie.getTitle(),
                 year,
@@ -37,19 +38,27 @@ public class MovieMapper {
                 movie.getPoster(),
                 tags
         );
+        movieElastic.setReleased(movie.getYear() != null ? movie.getYear().getTime() : null);
+        movieElastic.setImdbId(movie.getImdbId());
+        movieElastic.setTmdbId(movie.getTmdbId());
+        return movieElastic;
     }
 
     public static Movie fromElastic(MovieElastic movieElastic) {
         Movie movie = new Movie();
         movie.setId(movieElastic.getId());
         movie.setTitle(movieElastic.getTitle());
-        movie.setYear(movieElastic.getYear() != 0 ? java.util.Date.from(java.time.LocalDate.of(movieElastic.getYear(), 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant()) : null);
+        // Date exacte telle qu'en base, et non le 1er janvier de l'année indexée
+        movie.setYear(movieElastic.getReleased() != null ? new Date(movieElastic.getReleased()) : null);
         movie.setDirector(movieElastic.getDirector());
         movie.setWriters(movieElastic.getWriters());
         movie.setActors(movieElastic.getActors());
         movie.setPlot(movieElastic.getPlot());
         movie.setCountry(movieElastic.getCountry());
         movie.setRuntime(movieElastic.getRuntime() != 0 ? movieElastic.getRuntime() : null);
+        movie.setPoster(movieElastic.getPoster());
+        movie.setImdbId(movieElastic.getImdbId());
+        movie.setTmdbId(movieElastic.getTmdbId());
 
         return movie;
     }
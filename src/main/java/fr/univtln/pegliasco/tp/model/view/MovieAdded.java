@@ -0,0 +1,7 @@
+package fr.univtln.pegliasco.tp.model.view;
+
+import java.util.List;
+
+// Film créé, publié après validation de la transaction, avec ses genres pour lui estimer un vecteur
+public record MovieAdded(Long movieId, List<Long> genreIds) {
+}
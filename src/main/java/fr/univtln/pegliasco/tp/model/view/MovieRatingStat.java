@@ -0,0 +1,13 @@
+package fr.univtln.pegliasco.tp.model.view;
+
+// Statistiques des notes d'un film : effectif, somme et moyenne (0 sans note)
+public record MovieRatingStat(Long movieId, long count, double sum) {
+
+    public MovieRatingStat(Long movieId, Long count, Double sum) {
+        this(movieId, count != null ? count : 0L, sum != null ? sum : 0.0);
+    }
+
+    public double mean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+}
@@ -0,0 +1,18 @@
+package fr.univtln.pegliasco.tp.model.view;
+
+// Variation des notes d'un film, publiée après validation de la transaction qui l'a produite
+// rate : note après le changement, null pour une suppression
+public record RatingChange(Long accountId, Long movieId, int countDelta, double sumDelta, Float rate) {
+
+    public static RatingChange added(Long accountId, Long movieId, float rate) {
+        return new RatingChange(accountId, movieId, 1, rate, rate);
+    }
+
+    public static RatingChange removed(Long accountId, Long movieId, float rate) {
+        return new RatingChange(accountId, movieId, -1, -rate, null);
+    }
+
+    public static RatingChange updated(Long accountId, Long movieId, float oldRate, float newRate) {
+        return new RatingChange(accountId, movieId, 0, newRate - oldRate, newRate);
+    }
+}
@@ -0,0 +1,9 @@
+package fr.univtln.pegliasco.tp.model.view;
+
+import fr.univtln.pegliasco.tp.model.Movie;
+
+import java.util.List;
+
+// Une ligne de la réponse NDJSON des recommandations groupées : source = cache, local, remote, cold ou fallback
+public record UserRecommendations(Long userId, String source, List<Movie> movies) {
+}
@@ -0,0 +1,201 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Fichiers de facteurs ALS versionnés, {@code als-<version>.bin}, relus par projection en mémoire :
+ * une réplique charge le modèle sans le recalculer ni copier les tableaux, les pages étant partagées
+ * entre processus par le cache du système.
+ * <p>
+ * Format, petit-boutiste : un en-tête de 32 octets (magique {@code ALSF}, format, version, facteurs,
+ * utilisateurs, films, notes) suivi des identifiants utilisateurs et films ({@code long}), des facteurs
+ * utilisateurs puis films ({@code float}) et des films notés par utilisateur au format CSR ({@code int}).
+ * Un fichier est écrit à côté puis renommé atomiquement : un lecteur ne voit jamais de fichier partiel.
+ * <p>
+ * L'index {@link HnswIndex} construit sur les facteurs films d'une version est rangé à côté,
+ * {@code hnsw-<version>.bin}, et supprimé avec elle.
+ */
+public class AlsFactorStore {
+    private static final int MAGIC = 0x414C5346;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final Pattern FILE_NAME = Pattern.compile("als-(\\d+)\\.bin");
+
+    private final Path directory;
+    private final int retained;
+
+    /**
+     * @param retained nombre de versions conservées sur disque, les plus anciennes étant supprimées
+     */
+    public AlsFactorStore(Path directory, int retained) {
+        this.directory = directory;
+        this.retained = retained;
+    }
+
+    public Path write(AlsModel model) throws IOException {
+        int k = model.getFactors();
+        int userCount = model.getUserCount();
+        int itemCount = model.getItemCount();
+        int nnz = model.userItems().limit();
+        long size = HEADER_BYTES + 8L * (userCount + itemCount) + 4L * k * (userCount + itemCount)
+                + 4L * (userCount + 1) + 4L * nnz;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Modèle ALS trop volumineux pour un fichier projeté : " + size + " octets");
+        }
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName(model.getVersion()));
+        Path temporary = Files.createTempFile(directory, "als-", ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT).putLong(model.getVersion())
+                    .putInt(k).putInt(userCount).putInt(itemCount).putInt(nnz);
+            buffer.asLongBuffer().put(model.userIds());
+            buffer.position(buffer.position() + 8 * userCount);
+            buffer.asLongBuffer().put(model.itemIds());
+            buffer.position(buffer.position() + 8 * itemCount);
+            buffer.asFloatBuffer().put(model.userFactors());
+            buffer.position(buffer.position() + 4 * k * userCount);
+            buffer.asFloatBuffer().put(model.itemFactors());
+            buffer.position(buffer.position() + 4 * k * itemCount);
+            buffer.asIntBuffer().put(model.userOffsets());
+            buffer.position(buffer.position() + 4 * (userCount + 1));
+            buffer.asIntBuffer().put(model.userItems());
+            buffer.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        prune();
+        return target;
+    }
+
+    // Version la plus récente présente sur disque, s'il y en a une
+    public Optional<AlsModel> latest() throws IOException {
+        List<Long> versions = versions();
+        if (versions.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(read(directory.resolve(fileName(versions.get(versions.size() - 1)))));
+    }
+
+    public AlsModel read(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // La projection reste valide après la fermeture du canal
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT) {
+            throw new IOException("Fichier de facteurs ALS invalide : " + file);
+        }
+        long version = mapped.getLong(8);
+        int k = mapped.getInt(16);
+        int userCount = mapped.getInt(20);
+        int itemCount = mapped.getInt(24);
+        int nnz = mapped.getInt(28);
+
+        int position = HEADER_BYTES;
+        ByteBuffer userIds = section(mapped, position, 8 * userCount);
+        position += 8 * userCount;
+        ByteBuffer itemIds = section(mapped, position, 8 * itemCount);
+        position += 8 * itemCount;
+        ByteBuffer userFactors = section(mapped, position, 4 * k * userCount);
+        position += 4 * k * userCount;
+        ByteBuffer itemFactors = section(mapped, position, 4 * k * itemCount);
+        position += 4 * k * itemCount;
+        ByteBuffer userOffsets = section(mapped, position, 4 * (userCount + 1));
+        position += 4 * (userCount + 1);
+        ByteBuffer userItems = section(mapped, position, 4 * nnz);
+
+        return new AlsModel(version, k, userIds.asLongBuffer(), itemIds.asLongBuffer(),
+                userFactors.asFloatBuffer(), itemFactors.asFloatBuffer(),
+                userOffsets.asIntBuffer(), userItems.asIntBuffer());
+    }
+
+    public void writeIndex(long version, HnswIndex index) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "hnsw-", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            index.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, directory.resolve(indexFileName(version)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Index enregistré pour cette version de facteurs, s'il existe
+    public Optional<HnswIndex> readIndex(long version) throws IOException {
+        Path file = directory.resolve(indexFileName(version));
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            return Optional.of(HnswIndex.readFrom(in, version));
+        }
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, int offset, int length) throws IOException {
+        if (offset + length > buffer.limit()) {
+            throw new IOException("Fichier de facteurs ALS tronqué");
+        }
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void prune() throws IOException {
+        List<Long> versions = versions();
+        for (int i = 0; i < versions.size() - retained; i++) {
+            Files.deleteIfExists(directory.resolve(fileName(versions.get(i))));
+            Files.deleteIfExists(directory.resolve(indexFileName(versions.get(i))));
+        }
+    }
+
+    // Versions présentes, par ordre croissant
+    private List<Long> versions() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Long> versions = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    versions.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        versions.sort(null);
+        return versions;
+    }
+
+    private static String fileName(long version) {
+        return "als-" + version + ".bin";
+    }
+
+    private static String indexFileName(long version) {
+        return "hnsw-" + version + ".bin";
+    }
+}
@@ -0,0 +1,106 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Modèle de factorisation matricielle : un vecteur de {@code factors} composantes par utilisateur et par film,
+ * plus les films déjà notés par chaque utilisateur (CSR) pour les exclure des recommandations.
+ * Les requêtes passent par {@link HnswIndex}, construit sur les facteurs films.
+ * Les tableaux sont des vues de tampons : tableaux Java après entraînement, fichier projeté en mémoire
+ * après chargement par {@link AlsFactorStore}, sans copie.
+ */
+public class AlsModel {
+    private final long version;
+    private final int factors;
+    private final LongBuffer userIds;
+    private final LongBuffer itemIds;
+    private final FloatBuffer userFactors;
+    private final FloatBuffer itemFactors;
+    private final IntBuffer userOffsets;
+    private final IntBuffer userItems;
+    private final LongIntMap userIndex;
+
+    AlsModel(long version, int factors, LongBuffer userIds, LongBuffer itemIds, FloatBuffer userFactors,
+             FloatBuffer itemFactors, IntBuffer userOffsets, IntBuffer userItems) {
+        this.version = version;
+        this.factors = factors;
+        this.userIds = userIds;
+        this.itemIds = itemIds;
+        this.userFactors = userFactors;
+        this.itemFactors = itemFactors;
+        this.userOffsets = userOffsets;
+        this.userItems = userItems;
+        int userCount = userIds.limit();
+        this.userIndex = new LongIntMap(userCount);
+        for (int user = 0; user < userCount; user++) {
+            userIndex.put(userIds.get(user), user);
+        }
+    }
+
+    // Vecteur de l'utilisateur, ou null s'il n'est pas dans le modèle
+    public float[] userVector(long userId) {
+        int user = userIndex.get(userId);
+        if (user == LongIntMap.MISSING) {
+            return null;
+        }
+        float[] x = new float[factors];
+        userFactors.get(user * factors, x);
+        return x;
+    }
+
+    // Identifiants des films notés par l'utilisateur à l'entraînement
+    public long[] ratedItems(long userId) {
+        int user = userIndex.get(userId);
+        if (user == LongIntMap.MISSING) {
+            return new long[0];
+        }
+        int from = userOffsets.get(user);
+        long[] rated = new long[userOffsets.get(user + 1) - from];
+        for (int i = 0; i < rated.length; i++) {
+            rated[i] = itemIds.get(userItems.get(from + i));
+        }
+        return rated;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getFactors() {
+        return factors;
+    }
+
+    public int getUserCount() {
+        return userIds.limit();
+    }
+
+    public int getItemCount() {
+        return itemIds.limit();
+    }
+
+    LongBuffer userIds() {
+        return userIds.duplicate();
+    }
+
+    LongBuffer itemIds() {
+        return itemIds.duplicate();
+    }
+
+    FloatBuffer userFactors() {
+        return userFactors.duplicate();
+    }
+
+    FloatBuffer itemFactors() {
+        return itemFactors.duplicate();
+    }
+
+    IntBuffer userOffsets() {
+        return userOffsets.duplicate();
+    }
+
+    IntBuffer userItems() {
+        return userItems.duplicate();
+    }
+}
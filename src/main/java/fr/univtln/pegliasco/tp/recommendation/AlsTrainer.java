@@ -0,0 +1,176 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import org.jboss.logging.Logger;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Factorisation matricielle par moindres carrés alternés (ALS).
+ * <p>
+ * À chaque itération, les facteurs des films étant fixés, chaque vecteur utilisateur est la solution d'un système
+ * {@code factors × factors} indépendant, puis inversement : les lignes sont résolues en parallèle sur un
+ * {@link ForkJoinPool}, avec une matrice et un second membre propres à chaque thread.
+ * <ul>
+ *   <li>explicite : {@code (Σ y_i y_iᵀ + λ n_u I) x_u = Σ r_ui y_i} sur les seuls films notés (ALS-WR) ;</li>
+ *   <li>implicite : toute note vaut une préférence 1 de confiance {@code 1 + α r_ui}, les autres films une
+ *   préférence 0 de confiance 1 ; {@code YᵀY} est calculé une fois par demi-itération (Hu, Koren, Volinsky).</li>
+ * </ul>
+ */
+public class AlsTrainer {
+    private static final Logger logger = Logger.getLogger(AlsTrainer.class);
+
+    public record Params(int factors, int iterations, float lambda, boolean implicit, float alpha, long seed) {
+    }
+
+    private final Params params;
+    private final ForkJoinPool pool;
+
+    public AlsTrainer(Params params, ForkJoinPool pool) {
+        this.params = params;
+        this.pool = pool;
+    }
+
+    public AlsModel train(RatingMatrix matrix, long version) {
+        int k = params.factors();
+        int userCount = matrix.userCount();
+        int itemCount = matrix.itemCount();
+        float[] userFactors = new float[userCount * k];
+        float[] itemFactors = new float[itemCount * k];
+        Random random = new Random(params.seed());
+        float scale = (float) (0.1 / Math.sqrt(k));
+        for (int i = 0; i < itemFactors.length; i++) {
+            itemFactors[i] = (float) (random.nextGaussian() * scale);
+        }
+
+        for (int iteration = 1; iteration <= params.iterations(); iteration++) {
+            long start = System.nanoTime();
+            solve(userFactors, itemFactors, userCount, matrix.userOffsets, matrix.userItems, matrix.userRatings);
+            solve(itemFactors, userFactors, itemCount, matrix.itemOffsets, matrix.itemUsers, matrix.itemRatings);
+            if (logger.isDebugEnabled()) {
+                logger.debugf("ALS itération %d/%d : %d ms, RMSE d'entraînement %.4f", iteration, params.iterations(),
+                        (System.nanoTime() - start) / 1_000_000, rmse(matrix, userFactors, itemFactors));
+            }
+        }
+
+        return new AlsModel(version, k, LongBuffer.wrap(matrix.userIds), LongBuffer.wrap(matrix.itemIds),
+                FloatBuffer.wrap(userFactors), FloatBuffer.wrap(itemFactors),
+                IntBuffer.wrap(matrix.userOffsets), IntBuffer.wrap(matrix.userItems));
+    }
+
+    // Résout toutes les lignes de target, les facteurs fixed étant figés
+    private void solve(float[] target, float[] fixed, int rows, int[] offsets, int[] columns, float[] ratings) {
+        int k = params.factors();
+        double[] gram = params.implicit() ? gram(fixed, k) : null;
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new Solver(k));
+        pool.submit(() -> IntStream.range(0, rows).parallel().forEach(row -> {
+            Solver solver = solvers.get();
+            if (params.implicit()) {
+                System.arraycopy(gram, 0, solver.a, 0, gram.length);
+            } else {
+                Arrays.fill(solver.a, 0);
+            }
+            Arrays.fill(solver.b, 0);
+            int from = offsets[row];
+            int to = offsets[row + 1];
+            for (int p = from; p < to; p++) {
+                int base = columns[p] * k;
+                // Explicite : poids 1, cible r ; implicite : poids supplémentaire α r, cible pondérée 1 + α r
+                double weight = params.implicit() ? params.alpha() * ratings[p] : 1;
+                double preference = params.implicit() ? 1 + params.alpha() * ratings[p] : ratings[p];
+                for (int i = 0; i < k; i++) {
+                    double yi = fixed[base + i];
+                    solver.b[i] += preference * yi;
+                    double wyi = weight * yi;
+                    for (int j = 0; j <= i; j++) {
+                        solver.a[i * k + j] += wyi * fixed[base + j];
+                    }
+                }
+            }
+            double lambda = params.implicit() ? params.lambda() : params.lambda() * Math.max(1, to - from);
+            solver.solveInto(target, row * k, lambda);
+        })).join();
+    }
+
+    // YᵀY, triangle inférieur
+    private static double[] gram(float[] factors, int k) {
+        double[] gram = new double[k * k];
+        for (int base = 0; base < factors.length; base += k) {
+            for (int i = 0; i < k; i++) {
+                double fi = factors[base + i];
+                for (int j = 0; j <= i; j++) {
+                    gram[i * k + j] += fi * factors[base + j];
+                }
+            }
+        }
+        return gram;
+    }
+
+    private double rmse(RatingMatrix matrix, float[] userFactors, float[] itemFactors) {
+        int k = params.factors();
+        double squares = 0;
+        for (int user = 0; user < matrix.userCount(); user++) {
+            for (int p = matrix.userOffsets[user]; p < matrix.userOffsets[user + 1]; p++) {
+                int item = matrix.userItems[p];
+                double prediction = 0;
+                for (int f = 0; f < k; f++) {
+                    prediction += userFactors[user * k + f] * itemFactors[item * k + f];
+                }
+                double target = params.implicit() ? 1 : matrix.userRatings[p];
+                squares += (prediction - target) * (prediction - target);
+            }
+        }
+        return Math.sqrt(squares / Math.max(1, matrix.ratingCount()));
+    }
+
+    /**
+     * Système symétrique défini positif {@code (A + λI) x = b} résolu par Cholesky ; seul le triangle inférieur
+     * de {@code a} est lu.
+     */
+    private static final class Solver {
+        final int k;
+        final double[] a;
+        final double[] b;
+        final double[] l;
+        final double[] y;
+
+        Solver(int k) {
+            this.k = k;
+            a = new double[k * k];
+            b = new double[k];
+            l = new double[k * k];
+            y = new double[k];
+        }
+
+        void solveInto(float[] target, int offset, double lambda) {
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double sum = a[i * k + j] + (i == j ? lambda : 0);
+                    for (int m = 0; m < j; m++) {
+                        sum -= l[i * k + m] * l[j * k + m];
+                    }
+                    l[i * k + j] = i == j ? Math.sqrt(Math.max(sum, 1e-12)) : sum / l[j * k + j];
+                }
+            }
+            for (int i = 0; i < k; i++) {
+                double sum = b[i];
+                for (int m = 0; m < i; m++) {
+                    sum -= l[i * k + m] * y[m];
+                }
+                y[i] = sum / l[i * k + i];
+            }
+            for (int i = k - 1; i >= 0; i--) {
+                double sum = y[i];
+                for (int m = i + 1; m < k; m++) {
+                    sum -= l[m * k + i] * target[offset + m];
+                }
+                target[offset + i] = (float) (sum / l[i * k + i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Index HNSW (Malkov, Yashunin) des plus proches voisins approchés sur des vecteurs de films, au sens du
+ * produit scalaire : le score d'un film est {@code <q, v>}, que {@link #exact} calcule pour tous les films.
+ * <p>
+ * Chaque nœud reçoit un niveau tiré selon une loi géométrique de paramètre {@code 1 / ln M} ; une requête
+ * descend de façon gloutonne depuis le niveau le plus haut puis explore le niveau 0 avec une file de
+ * {@code ef} candidats.
+ * Les voisins sont choisis par l'heuristique de diversité de l'article, complétés par les plus proches écartés.
+ * <p>
+ * Les recherches se font en parallèle ; une insertion prend le verrou en écriture le temps de relier le nœud.
+ */
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357;
+    private static final int FORMAT = 1;
+
+    private final int dims;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;
+    private long[] ids;
+    // links[nœud][niveau] : nombre de voisins en tête, puis leurs indices
+    private int[][][] links;
+    private final LongIntMap nodes;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // Marqueurs de visite par thread, remis à zéro par génération comme les tampons de scoring des modèles
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    /**
+     * @param m nombre de voisins par nœud aux niveaux supérieurs, le double au niveau 0
+     * @param efConstruction largeur de la file de candidats à l'insertion
+     */
+    public HnswIndex(int dims, int m, int efConstruction, int expectedSize, long seed) {
+        this.dims = dims;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+        int capacity = Math.max(16, expectedSize);
+        this.vectors = new float[capacity * dims];
+        this.ids = new long[capacity];
+        this.links = new int[capacity][][];
+        this.nodes = new LongIntMap(capacity);
+    }
+
+    // Index des facteurs films d'un modèle ALS, films insérés dans l'ordre du modèle
+    public static HnswIndex of(AlsModel model, int m, int efConstruction) {
+        int k = model.getFactors();
+        HnswIndex index = new HnswIndex(k, m, efConstruction, model.getItemCount(), model.getVersion());
+        LongBuffer itemIds = model.itemIds();
+        FloatBuffer itemFactors = model.itemFactors();
+        float[] vector = new float[k];
+        for (int item = 0; item < model.getItemCount(); item++) {
+            itemFactors.get(item * k, vector);
+            index.add(itemIds.get(item), vector);
+        }
+        return index;
+    }
+
+    /**
+     * Ajoute un film. Sans effet si l'identifiant est déjà indexé.
+     * @return {@code true} si le film a été ajouté
+     */
+    public boolean add(long id, float[] vector) {
+        if (vector.length != dims) {
+            throw new IllegalArgumentException("Vecteur de dimension " + vector.length + " au lieu de " + dims);
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodes.get(id) != LongIntMap.MISSING) {
+                return false;
+            }
+            int node = allocate(id, vector);
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            links[node] = new int[level + 1][];
+            for (int lc = 0; lc <= level; lc++) {
+                links[node][lc] = new int[1 + maxLinks(lc)];
+            }
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            int entry = entryPoint;
+            for (int lc = maxLevel; lc > level; lc--) {
+                entry = greedy(vector, entry, lc);
+            }
+            int[] entries = {entry};
+            for (int lc = Math.min(level, maxLevel); lc >= 0; lc--) {
+                Candidates found = searchLayer(vector, entries, efConstruction, lc);
+                int[] selected = selectNeighbours(found.items, found.scores, found.size, m);
+                int[] own = links[node][lc];
+                own[0] = selected.length;
+                System.arraycopy(selected, 0, own, 1, selected.length);
+                for (int neighbour : selected) {
+                    connect(neighbour, node, lc);
+                }
+                entries = Arrays.copyOf(found.items, found.size);
+            }
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remplace le vecteur d'un film indexé sans recalculer ses liens : adapté aux petits déplacements
+     * d'un apprentissage en ligne, le graphe étant reconstruit au prochain entraînement.
+     * @return {@code false} si le film n'est pas indexé
+     */
+    public boolean update(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            int node = nodes.get(id);
+            if (node == LongIntMap.MISSING) {
+                return false;
+            }
+            System.arraycopy(vector, 0, vectors, node * dims, dims);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Les {@code count} films au meilleur produit scalaire avec {@code query}, du meilleur au moins bon,
+     * parmi ceux que {@code excluded} n'écarte pas.
+     * @param ef largeur de la file de candidats au niveau 0 : plus elle est grande, meilleur est le rappel
+     */
+    public List<Long> search(float[] query, int count, int ef, LongPredicate excluded) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int entry = entryPoint;
+            for (int lc = maxLevel; lc > 0; lc--) {
+                entry = greedy(query, entry, lc);
+            }
+            Candidates found = searchLayer(query, new int[]{entry}, Math.max(ef, count), 0);
+            List<Long> result = new ArrayList<>(count);
+            for (int i = 0; i < found.size && result.size() < count; i++) {
+                long id = ids[found.items[i]];
+                if (!excluded.test(id)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Même contrat que search, par parcours exhaustif : référence de rappel et repli sans index
+    public List<Long> exact(float[] query, int count, LongPredicate excluded) {
+        lock.readLock().lock();
+        try {
+            TopN top = new TopN(count);
+            for (int node = 0; node < size; node++) {
+                if (!excluded.test(ids[node])) {
+                    top.offer(node, dot(query, node));
+                }
+            }
+            List<Long> result = new ArrayList<>(count);
+            for (int node : top.sorted()) {
+                result.add(ids[node]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copie du vecteur d'un film indexé, ou null
+    public float[] vector(long id) {
+        lock.readLock().lock();
+        try {
+            int node = nodes.get(id);
+            return node == LongIntMap.MISSING ? null : Arrays.copyOfRange(vectors, node * dims, (node + 1) * dims);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDims() {
+        return dims;
+    }
+
+    /**
+     * Sérialise l'index : paramètres, point d'entrée, puis pour chaque nœud son identifiant, son vecteur
+     * et ses listes de voisins par niveau. La relecture ne recalcule aucune distance.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(dims);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.writeLong(ids[node]);
+                for (int f = 0; f < dims; f++) {
+                    out.writeFloat(vectors[node * dims + f]);
+                }
+                out.writeInt(links[node].length);
+                for (int[] level : links[node]) {
+                    out.writeInt(level[0]);
+                    for (int i = 1; i <= level[0]; i++) {
+                        out.writeInt(level[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex readFrom(DataInput in, long seed) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+            throw new IOException("Index HNSW invalide");
+        }
+        int dims = in.readInt();
+        int m = in.readInt();
+        int efConstruction = in.readInt();
+        int size = in.readInt();
+        HnswIndex index = new HnswIndex(dims, m, efConstruction, size, seed);
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        for (int node = 0; node < size; node++) {
+            long id = in.readLong();
+            index.ids[node] = id;
+            index.nodes.put(id, node);
+            for (int f = 0; f < dims; f++) {
+                index.vectors[node * dims + f] = in.readFloat();
+            }
+            int levels = in.readInt();
+            index.links[node] = new int[levels][];
+            for (int lc = 0; lc < levels; lc++) {
+                int[] level = new int[1 + index.maxLinks(lc)];
+                level[0] = in.readInt();
+                for (int i = 1; i <= level[0]; i++) {
+                    level[i] = in.readInt();
+                }
+                index.links[node][lc] = level;
+            }
+        }
+        index.size = size;
+        return index;
+    }
+
+    private int allocate(long id, float[] vector) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            vectors = Arrays.copyOf(vectors, capacity * dims);
+            links = Arrays.copyOf(links, capacity);
+        }
+        int node = size++;
+        ids[node] = id;
+        System.arraycopy(vector, 0, vectors, node * dims, dims);
+        nodes.put(id, node);
+        return node;
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    // Ajoute node aux voisins de neighbour ; au-delà de la limite, la liste est resélectionnée par l'heuristique
+    private void connect(int neighbour, int node, int level) {
+        int[] list = links[neighbour][level];
+        int count = list[0];
+        int limit = maxLinks(level);
+        if (count < limit) {
+            list[count + 1] = node;
+            list[0] = count + 1;
+            return;
+        }
+        int[] items = new int[count + 1];
+        float[] scores = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            items[i] = list[i + 1];
+        }
+        items[count] = node;
+        for (int i = 0; i <= count; i++) {
+            scores[i] = dot(neighbour, items[i]);
+        }
+        sortDescending(items, scores, count + 1);
+        int[] selected = selectNeighbours(items, scores, count + 1, limit);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    /**
+     * Heuristique de l'article : un candidat, pris du plus proche au plus lointain, n'est retenu que s'il est
+     * plus proche de la requête que de chacun des voisins déjà retenus. Les places restantes sont comblées
+     * par les candidats écartés, ce qui améliore le rappel en produit scalaire.
+     * @param scores scores des candidats avec la requête, décroissants
+     */
+    private int[] selectNeighbours(int[] items, float[] scores, int count, int limit) {
+        int[] selected = new int[Math.min(limit, count)];
+        int chosen = 0;
+        boolean[] kept = new boolean[count];
+        for (int i = 0; i < count && chosen < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < chosen && diverse; j++) {
+                diverse = dot(items[i], selected[j]) < scores[i];
+            }
+            if (diverse) {
+                selected[chosen++] = items[i];
+                kept[i] = true;
+            }
+        }
+        for (int i = 0; i < count && chosen < selected.length; i++) {
+            if (!kept[i]) {
+                selected[chosen++] = items[i];
+            }
+        }
+        return selected;
+    }
+
+    private int greedy(float[] query, int entry, int level) {
+        int current = entry;
+        float best = dot(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float score = dot(query, list[i]);
+                if (score > best) {
+                    best = score;
+                    current = list[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Recherche en faisceau sur un niveau : les ef meilleurs nœuds atteints, triés par score décroissant
+    private Candidates searchLayer(float[] query, int[] entries, int ef, int level) {
+        Visited seen = visited.get();
+        int stamp = seen.next(size);
+        Heap candidates = new Heap(ef);
+        Heap results = new Heap(ef);
+        for (int entry : entries) {
+            seen.marks[entry] = stamp;
+            float score = dot(query, entry);
+            candidates.push(entry, -score);
+            results.push(entry, score);
+            if (results.size > ef) {
+                results.pop();
+            }
+        }
+        while (candidates.size > 0) {
+            float score = -candidates.topScore();
+            int current = candidates.pop();
+            if (results.size >= ef && score < results.topScore()) {
+                break;
+            }
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (seen.marks[neighbour] == stamp) {
+                    continue;
+                }
+                seen.marks[neighbour] = stamp;
+                float neighbourScore = dot(query, neighbour);
+                if (results.size < ef || neighbourScore > results.topScore()) {
+                    candidates.push(neighbour, -neighbourScore);
+                    results.push(neighbour, neighbourScore);
+                    if (results.size > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        Candidates found = new Candidates(results.size);
+        for (int i = results.size - 1; i >= 0; i--) {
+            found.scores[i] = results.topScore();
+            found.items[i] = results.pop();
+        }
+        return found;
+    }
+
+    private float dot(float[] query, int node) {
+        int base = node * dims;
+        float sum = 0;
+        for (int f = 0; f < dims; f++) {
+            sum += query[f] * vectors[base + f];
+        }
+        return sum;
+    }
+
+    private float dot(int a, int b) {
+        int baseA = a * dims;
+        int baseB = b * dims;
+        float sum = 0;
+        for (int f = 0; f < dims; f++) {
+            sum += vectors[baseA + f] * vectors[baseB + f];
+        }
+        return sum;
+    }
+
+    private static void sortDescending(int[] items, float[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int item = items[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                items[j + 1] = items[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            items[j + 1] = item;
+            scores[j + 1] = score;
+        }
+    }
+
+    private static final class Candidates {
+        final int[] items;
+        final float[] scores;
+        final int size;
+
+        Candidates(int size) {
+            this.items = new int[size];
+            this.scores = new float[size];
+            this.size = size;
+        }
+    }
+
+    // Tas binaire minimal extensible ; un tas maximal s'obtient en poussant les scores opposés
+    private static final class Heap {
+        int[] items;
+        float[] scores;
+        int size;
+
+        Heap(int capacity) {
+            items = new int[capacity + 1];
+            scores = new float[capacity + 1];
+        }
+
+        void push(int item, float score) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                items[i] = items[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            items[i] = item;
+            scores[i] = score;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        int pop() {
+            int top = items[0];
+            int item = items[--size];
+            float score = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= score) {
+                    break;
+                }
+                items[i] = items[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            items[i] = item;
+            scores[i] = score;
+            return top;
+        }
+    }
+
+    private static final class Visited {
+        int[] marks = new int[0];
+        int generation;
+
+        int next(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+}
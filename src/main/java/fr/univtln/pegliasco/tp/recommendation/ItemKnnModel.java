@@ -0,0 +1,312 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Modèle item-kNN immuable, entièrement en tableaux primitifs.
+ * <ul>
+ *   <li>notes par utilisateur au format CSR ({@code userOffsets}/{@code userItems}/{@code userValues}),
+ *   centrées sur la moyenne de l'utilisateur ;</li>
+ *   <li>les K plus proches voisins de chaque film, même disposition CSR, triés par similarité décroissante ;</li>
+ *   <li>l'ordre de popularité des films pour les utilisateurs sans historique.</li>
+ * </ul>
+ * La similarité est un cosinus ajusté (notes centrées par utilisateur), atténué pour les paires
+ * qui ont peu d'utilisateurs en commun : {@code sim * n / (n + shrinkage)}.
+ */
+public class ItemKnnModel {
+    // Poids du prior de la moyenne bayésienne du classement de popularité, en nombre de notes
+    private static final float POPULARITY_PRIOR = 10f;
+
+    private final long[] itemIds;
+    private final LongIntMap itemIndex;
+    private final LongIntMap userIndex;
+    private final int[] userOffsets;
+    private final int[] userItems;
+    private final float[] userValues;
+    private final int[] neighbourOffsets;
+    private final int[] neighbourItems;
+    private final float[] neighbourSims;
+    private final int[] popular;
+
+    // Tampons de scoring réutilisés par thread : un marqueur de génération évite de les remettre à zéro
+    private final ThreadLocal<Scratch> scratch;
+
+    private ItemKnnModel(long[] itemIds, LongIntMap itemIndex, LongIntMap userIndex, int[] userOffsets,
+                         int[] userItems, float[] userValues, int[] neighbourOffsets, int[] neighbourItems,
+                         float[] neighbourSims, int[] popular) {
+        this.itemIds = itemIds;
+        this.itemIndex = itemIndex;
+        this.userIndex = userIndex;
+        this.userOffsets = userOffsets;
+        this.userItems = userItems;
+        this.userValues = userValues;
+        this.neighbourOffsets = neighbourOffsets;
+        this.neighbourItems = neighbourItems;
+        this.neighbourSims = neighbourSims;
+        this.popular = popular;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(itemIds.length));
+    }
+
+    /**
+     * Construit le modèle à partir de toutes les notes.
+     * @param neighbours nombre de voisins conservés par film
+     * @param shrinkage atténuation des similarités à faible support
+     */
+    public static ItemKnnModel train(RatingBatch ratings, int neighbours, float shrinkage) {
+        RatingMatrix matrix = RatingMatrix.of(ratings);
+        int userCount = matrix.userCount();
+        int itemCount = matrix.itemCount();
+        int[] userOffsets = matrix.userOffsets;
+        int[] userItems = matrix.userItems;
+        int[] itemOffsets = matrix.itemOffsets;
+        int[] itemUsers = matrix.itemUsers;
+
+        // Notes centrées sur la moyenne de chaque utilisateur, dans les deux index
+        float[] userMeans = new float[userCount];
+        float[] userValues = new float[userItems.length];
+        double globalSum = 0;
+        for (int user = 0; user < userCount; user++) {
+            double sum = 0;
+            for (int p = userOffsets[user]; p < userOffsets[user + 1]; p++) {
+                sum += matrix.userRatings[p];
+            }
+            globalSum += sum;
+            userMeans[user] = (float) (sum / (userOffsets[user + 1] - userOffsets[user]));
+            for (int p = userOffsets[user]; p < userOffsets[user + 1]; p++) {
+                userValues[p] = matrix.userRatings[p] - userMeans[user];
+            }
+        }
+        float[] itemValues = new float[itemUsers.length];
+        for (int p = 0; p < itemUsers.length; p++) {
+            itemValues[p] = matrix.itemRatings[p] - userMeans[itemUsers[p]];
+        }
+
+        float[] norms = new float[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            double squares = 0;
+            for (int p = itemOffsets[item]; p < itemOffsets[item + 1]; p++) {
+                squares += itemValues[p] * itemValues[p];
+            }
+            norms[item] = (float) Math.sqrt(squares);
+        }
+
+        // Voisinages calculés en parallèle, un film par tâche, avec des accumulateurs propres à chaque thread
+        ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(() -> new Accumulator(itemCount, neighbours));
+        int[][] nearestItems = new int[itemCount][];
+        float[][] nearestSims = new float[itemCount][];
+        IntStream.range(0, itemCount).parallel().forEach(item -> {
+            Accumulator acc = accumulators.get();
+            acc.collect(item, itemOffsets, itemUsers, itemValues, userOffsets, userItems, userValues);
+            acc.topNeighbours(item, norms, shrinkage);
+            nearestItems[item] = acc.heapItems();
+            nearestSims[item] = acc.heapSims();
+        });
+
+        int[] neighbourOffsets = new int[itemCount + 1];
+        for (int item = 0; item < itemCount; item++) {
+            neighbourOffsets[item + 1] = neighbourOffsets[item] + nearestItems[item].length;
+        }
+        int[] neighbourItems = new int[neighbourOffsets[itemCount]];
+        float[] neighbourSims = new float[neighbourOffsets[itemCount]];
+        for (int item = 0; item < itemCount; item++) {
+            System.arraycopy(nearestItems[item], 0, neighbourItems, neighbourOffsets[item], nearestItems[item].length);
+            System.arraycopy(nearestSims[item], 0, neighbourSims, neighbourOffsets[item], nearestSims[item].length);
+        }
+
+        // Popularité : moyenne bayésienne, qui évite de classer en tête un film noté 5 une seule fois
+        double globalMean = matrix.ratingCount() == 0 ? 0 : globalSum / matrix.ratingCount();
+        double[] popularity = new double[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            double sum = 0;
+            for (int p = itemOffsets[item]; p < itemOffsets[item + 1]; p++) {
+                sum += matrix.itemRatings[p];
+            }
+            popularity[item] = (sum + POPULARITY_PRIOR * globalMean)
+                    / (itemOffsets[item + 1] - itemOffsets[item] + POPULARITY_PRIOR);
+        }
+        int[] popular = IntStream.range(0, itemCount).boxed()
+                .sorted((a, b) -> Double.compare(popularity[b], popularity[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        return new ItemKnnModel(matrix.itemIds, matrix.itemIndex, matrix.userIndex, userOffsets, userItems, userValues,
+                neighbourOffsets, neighbourItems, neighbourSims, popular);
+    }
+
+    /**
+     * Films recommandés à un utilisateur, du meilleur au moins bon : somme, sur les films qu'il a notés,
+     * de la similarité pondérée par sa note centrée. Complétée par les films populaires qu'il n'a pas vus ;
+     * un utilisateur absent du modèle reçoit le classement de popularité.
+     */
+    public List<Long> recommend(long userId, int count) {
+        int user = userIndex.get(userId);
+        if (user == LongIntMap.MISSING) {
+            return popular(count);
+        }
+        Scratch s = scratch.get();
+        int generation = s.nextGeneration();
+        for (int p = userOffsets[user]; p < userOffsets[user + 1]; p++) {
+            s.seen[userItems[p]] = generation;
+        }
+
+        TopN top = new TopN(count);
+        int touched = 0;
+        for (int p = userOffsets[user]; p < userOffsets[user + 1]; p++) {
+            float value = userValues[p];
+            int item = userItems[p];
+            for (int n = neighbourOffsets[item]; n < neighbourOffsets[item + 1]; n++) {
+                int candidate = neighbourItems[n];
+                if (s.seen[candidate] == generation) {
+                    continue;
+                }
+                if (s.scored[candidate] != generation) {
+                    s.scored[candidate] = generation;
+                    s.scores[candidate] = 0;
+                    s.touched[touched++] = candidate;
+                }
+                s.scores[candidate] += neighbourSims[n] * value;
+            }
+        }
+        for (int i = 0; i < touched; i++) {
+            int candidate = s.touched[i];
+            if (s.scores[candidate] > 0) {
+                top.offer(candidate, s.scores[candidate]);
+            }
+        }
+
+        List<Long> result = new ArrayList<>(count);
+        for (int item : top.sorted()) {
+            result.add(itemIds[item]);
+            s.seen[item] = generation;
+        }
+        for (int i = 0; i < popular.length && result.size() < count; i++) {
+            if (s.seen[popular[i]] != generation) {
+                result.add(itemIds[popular[i]]);
+            }
+        }
+        return result;
+    }
+
+    // Plus proches voisins d'un film, de la similarité la plus forte à la plus faible ; vide si le film est inconnu
+    public List<Long> similar(long movieId, int count) {
+        int item = itemIndex.get(movieId);
+        if (item == LongIntMap.MISSING) {
+            return List.of();
+        }
+        int to = Math.min(neighbourOffsets[item + 1], neighbourOffsets[item] + count);
+        List<Long> result = new ArrayList<>(to - neighbourOffsets[item]);
+        for (int n = neighbourOffsets[item]; n < to; n++) {
+            result.add(itemIds[neighbourItems[n]]);
+        }
+        return result;
+    }
+
+    public List<Long> popular(int count) {
+        int limit = Math.min(count, popular.length);
+        List<Long> result = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            result.add(itemIds[popular[i]]);
+        }
+        return result;
+    }
+
+    public int getItemCount() {
+        return itemIds.length;
+    }
+
+    public int getUserCount() {
+        return userIndex.size();
+    }
+
+    public int getNeighbourCount() {
+        return neighbourItems.length;
+    }
+
+    private static final class Scratch {
+        final int[] seen;
+        final int[] scored;
+        final float[] scores;
+        final int[] touched;
+        int generation;
+
+        Scratch(int itemCount) {
+            seen = new int[itemCount];
+            scored = new int[itemCount];
+            scores = new float[itemCount];
+            touched = new int[itemCount];
+        }
+
+        int nextGeneration() {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(scored, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+
+    // Produits scalaires d'un film avec tous ceux qui partagent au moins un utilisateur
+    private static final class Accumulator {
+        final float[] dots;
+        final int[] support;
+        final int[] touched;
+        int touchedCount;
+        final TopN top;
+
+        Accumulator(int itemCount, int neighbours) {
+            dots = new float[itemCount];
+            support = new int[itemCount];
+            touched = new int[itemCount];
+            top = new TopN(neighbours);
+        }
+
+        void collect(int item, int[] itemOffsets, int[] itemUsers, float[] itemValues,
+                     int[] userOffsets, int[] userItems, float[] userValues) {
+            touchedCount = 0;
+            for (int p = itemOffsets[item]; p < itemOffsets[item + 1]; p++) {
+                int user = itemUsers[p];
+                float value = itemValues[p];
+                for (int q = userOffsets[user]; q < userOffsets[user + 1]; q++) {
+                    int other = userItems[q];
+                    if (other == item) {
+                        continue;
+                    }
+                    if (support[other]++ == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                    dots[other] += value * userValues[q];
+                }
+            }
+        }
+
+        void topNeighbours(int item, float[] norms, float shrinkage) {
+            top.clear();
+            for (int i = 0; i < touchedCount; i++) {
+                int other = touched[i];
+                float denominator = norms[item] * norms[other];
+                if (denominator > 0) {
+                    float sim = dots[other] / denominator * support[other] / (support[other] + shrinkage);
+                    if (sim > 0) {
+                        top.offer(other, sim);
+                    }
+                }
+                dots[other] = 0;
+                support[other] = 0;
+            }
+        }
+
+        int[] heapItems() {
+            return top.sorted();
+        }
+
+        float[] heapSims() {
+            return top.sortedScores();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+/**
+ * Table {@code long -> int} à adressage ouvert (sondage linéaire), sans objet par entrée.
+ * Sert à passer des identifiants en base aux indices denses des tableaux du modèle. Non synchronisée.
+ */
+public class LongIntMap {
+    public static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    public void put(long key, int value) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    // Indice associé, ou MISSING
+    public int get(long key) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    // Retire la clé ; les entrées suivantes de la grappe sont recalées pour rester accessibles au sondage
+    public void remove(long key) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                close(slot);
+                size--;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public LongIntMap copy() {
+        LongIntMap copy = new LongIntMap(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.used = used.clone();
+        copy.mask = mask;
+        copy.size = size;
+        return copy;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Comble la case libérée avec l'entrée suivante dont la case d'origine la précède, et ainsi de suite
+    private void close(int hole) {
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        int capacity = oldKeys.length << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
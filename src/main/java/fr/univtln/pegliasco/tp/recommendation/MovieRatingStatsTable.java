@@ -0,0 +1,96 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import fr.univtln.pegliasco.tp.model.view.MovieRatingStat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Effectif et somme des notes de chaque film, en colonnes primitives indexées par une {@link LongIntMap}.
+ * Les variations sont appliquées en place : la table reste à jour sans relire la base.
+ */
+public class MovieRatingStatsTable {
+    private final LongIntMap index;
+    private long[] movieIds;
+    private long[] counts;
+    private double[] sums;
+    private int size;
+
+    public MovieRatingStatsTable(List<MovieRatingStat> stats) {
+        int capacity = Math.max(16, stats.size());
+        index = new LongIntMap(capacity);
+        movieIds = new long[capacity];
+        counts = new long[capacity];
+        sums = new double[capacity];
+        for (MovieRatingStat stat : stats) {
+            apply(stat.movieId(), stat.count(), stat.sum());
+        }
+    }
+
+    public synchronized void apply(long movieId, long countDelta, double sumDelta) {
+        int slot = index.get(movieId);
+        if (slot == LongIntMap.MISSING) {
+            slot = size++;
+            if (slot == counts.length) {
+                movieIds = Arrays.copyOf(movieIds, slot * 2);
+                counts = Arrays.copyOf(counts, slot * 2);
+                sums = Arrays.copyOf(sums, slot * 2);
+            }
+            index.put(movieId, slot);
+            movieIds[slot] = movieId;
+        }
+        counts[slot] += countDelta;
+        sums[slot] += sumDelta;
+    }
+
+    public synchronized MovieRatingStat get(Long movieId) {
+        int slot = index.get(movieId);
+        return slot == LongIntMap.MISSING
+                ? new MovieRatingStat(movieId, 0L, 0.0)
+                : new MovieRatingStat(movieId, counts[slot], sums[slot]);
+    }
+
+    // Lecture groupée sous un seul verrou ; un film sans note a un effectif nul
+    public synchronized Map<Long, MovieRatingStat> getAll(Collection<Long> ids) {
+        Map<Long, MovieRatingStat> result = new HashMap<>(ids.size() * 2);
+        for (Long movieId : ids) {
+            int slot = index.get(movieId);
+            result.put(movieId, slot == LongIntMap.MISSING
+                    ? new MovieRatingStat(movieId, 0L, 0.0)
+                    : new MovieRatingStat(movieId, counts[slot], sums[slot]));
+        }
+        return result;
+    }
+
+    /**
+     * Films les mieux notés selon une moyenne bayésienne : {@code prior} notes fictives égales à la moyenne
+     * globale sont ajoutées à chaque film, ce qui écarte ceux qui n'ont que quelques très bonnes notes.
+     */
+    public synchronized List<Long> topRated(int count, double prior) {
+        long totalCount = 0;
+        double totalSum = 0;
+        for (int slot = 0; slot < size; slot++) {
+            totalCount += counts[slot];
+            totalSum += sums[slot];
+        }
+        double globalMean = totalCount == 0 ? 0 : totalSum / totalCount;
+        double[] scores = new double[size];
+        for (int slot = 0; slot < size; slot++) {
+            scores[slot] = (sums[slot] + prior * globalMean) / (counts[slot] + prior);
+        }
+        return IntStream.range(0, size).boxed()
+                .filter(slot -> counts[slot] > 0)
+                .sorted((a, b) -> Double.compare(scores[b], scores[a]))
+                .limit(count)
+                .map(slot -> movieIds[slot])
+                .toList();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
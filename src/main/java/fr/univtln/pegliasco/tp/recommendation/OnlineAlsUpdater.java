@@ -0,0 +1,143 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mise à jour en ligne d'un modèle ALS entre deux entraînements : chaque nouvelle note applique un pas de
+ * descente de gradient stochastique au vecteur de l'utilisateur, et optionnellement à celui du film.
+ * <pre>
+ *   e = r - &lt;x_u, y_i&gt;
+ *   x_u += η (e y_i - λ x_u)
+ *   y_i += η (e x_u - λ y_i)
+ * </pre>
+ * Les facteurs du modèle étant en lecture seule (fichier projeté), les vecteurs utilisateurs modifiés sont
+ * gardés à part, avec les films notés depuis l'entraînement ; les vecteurs films modifiés sont écrits dans
+ * l'index. Un utilisateur inconnu du modèle part d'un vecteur nul, que sa première note oriente.
+ * Une note supprimée retire seulement le film des films notés, qui peut de nouveau être recommandé ;
+ * le vecteur garde la trace de la note jusqu'au réentraînement.
+ * Le tout est abandonné avec le modèle au réentraînement suivant.
+ */
+public class OnlineAlsUpdater {
+    private final AlsModel model;
+    private final HnswIndex index;
+    private final float learningRate;
+    private final float lambda;
+    private final boolean implicit;
+    private final boolean updateItems;
+    private final Map<Long, UserState> users = new ConcurrentHashMap<>();
+
+    /**
+     * @param implicit la cible est une préférence de 1 plutôt que la note, comme à l'entraînement implicite
+     * @param updateItems applique aussi le pas au vecteur du film
+     */
+    public OnlineAlsUpdater(AlsModel model, HnswIndex index, float learningRate, float lambda,
+                            boolean implicit, boolean updateItems) {
+        this.model = model;
+        this.index = index;
+        this.learningRate = learningRate;
+        this.lambda = lambda;
+        this.implicit = implicit;
+        this.updateItems = updateItems;
+    }
+
+    /**
+     * Prend en compte une note ajoutée ou modifiée.
+     * @return {@code false} si le film n'a pas de vecteur : la note attendra le prochain entraînement
+     */
+    public boolean apply(long userId, long movieId, float rate) {
+        float[] item = index.vector(movieId);
+        if (item == null) {
+            return false;
+        }
+        UserState state = users.computeIfAbsent(userId, this::initialState);
+        float target = implicit ? 1 : rate;
+        synchronized (state) {
+            float[] user = state.vector;
+            float error = target;
+            for (int f = 0; f < user.length; f++) {
+                error -= user[f] * item[f];
+            }
+            float[] previous = updateItems ? user.clone() : user;
+            for (int f = 0; f < user.length; f++) {
+                user[f] += learningRate * (error * item[f] - lambda * user[f]);
+            }
+            if (updateItems) {
+                // Deux pas simultanés sur un même film peuvent s'écraser : l'un est perdu, sans incohérence
+                for (int f = 0; f < item.length; f++) {
+                    item[f] += learningRate * (error * previous[f] - lambda * item[f]);
+                }
+                index.update(movieId, item);
+            }
+            state.rated.put(movieId, 0);
+        }
+        return true;
+    }
+
+    // Note supprimée : le film n'est plus exclu des recommandations de l'utilisateur
+    public void remove(long userId, long movieId) {
+        UserState state = users.get(userId);
+        if (state == null) {
+            if (model.userVector(userId) == null) {
+                // Ni dans le modèle ni noté depuis : aucun film exclu, et l'utilisateur reste en démarrage à froid
+                return;
+            }
+            state = users.computeIfAbsent(userId, this::initialState);
+        }
+        synchronized (state) {
+            state.rated.remove(movieId);
+        }
+    }
+
+    // Vecteur courant de l'utilisateur (copie), ou null s'il n'est ni dans le modèle ni mis à jour depuis
+    public float[] userVector(long userId) {
+        UserState state = users.get(userId);
+        if (state == null) {
+            return model.userVector(userId);
+        }
+        synchronized (state) {
+            return state.vector.clone();
+        }
+    }
+
+    // Films notés à l'entraînement et depuis
+    public LongIntMap ratedItems(long userId) {
+        UserState state = users.get(userId);
+        if (state == null) {
+            return rated(model.ratedItems(userId));
+        }
+        synchronized (state) {
+            return state.rated.copy();
+        }
+    }
+
+    public int getUpdatedUserCount() {
+        return users.size();
+    }
+
+    private UserState initialState(long userId) {
+        float[] vector = model.userVector(userId);
+        if (vector == null) {
+            vector = new float[model.getFactors()];
+        }
+        return new UserState(vector, rated(model.ratedItems(userId)));
+    }
+
+    private static LongIntMap rated(long[] movieIds) {
+        LongIntMap rated = new LongIntMap(movieIds.length);
+        for (long movieId : movieIds) {
+            rated.put(movieId, 0);
+        }
+        return rated;
+    }
+
+    private static final class UserState {
+        final float[] vector;
+        final LongIntMap rated;
+
+        UserState(float[] vector, LongIntMap rated) {
+            this.vector = vector;
+            this.rated = rated;
+        }
+    }
+}
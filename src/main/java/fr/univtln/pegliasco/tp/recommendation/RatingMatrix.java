@@ -0,0 +1,118 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+
+import java.util.Arrays;
+
+/**
+ * Matrice creuse utilisateurs × films des notes, indexée deux fois au format CSR :
+ * par utilisateur ({@code userOffsets}/{@code userItems}/{@code userRatings}) et par film
+ * ({@code itemOffsets}/{@code itemUsers}/{@code itemRatings}). Les identifiants en base sont remplacés
+ * par des indices denses, dans l'ordre de première apparition.
+ */
+public class RatingMatrix {
+    final long[] userIds;
+    final long[] itemIds;
+    final LongIntMap userIndex;
+    final LongIntMap itemIndex;
+    final int[] userOffsets;
+    final int[] userItems;
+    final float[] userRatings;
+    final int[] itemOffsets;
+    final int[] itemUsers;
+    final float[] itemRatings;
+
+    private RatingMatrix(long[] userIds, long[] itemIds, LongIntMap userIndex, LongIntMap itemIndex,
+                         int[] userOffsets, int[] userItems, float[] userRatings,
+                         int[] itemOffsets, int[] itemUsers, float[] itemRatings) {
+        this.userIds = userIds;
+        this.itemIds = itemIds;
+        this.userIndex = userIndex;
+        this.itemIndex = itemIndex;
+        this.userOffsets = userOffsets;
+        this.userItems = userItems;
+        this.userRatings = userRatings;
+        this.itemOffsets = itemOffsets;
+        this.itemUsers = itemUsers;
+        this.itemRatings = itemRatings;
+    }
+
+    public static RatingMatrix of(RatingBatch ratings) {
+        int size = ratings.size();
+        LongIntMap userIndex = new LongIntMap(size / 16);
+        LongIntMap itemIndex = new LongIntMap(size / 64);
+        int[] users = new int[size];
+        int[] items = new int[size];
+        long[] userIds = new long[16];
+        long[] itemIds = new long[16];
+        for (int i = 0; i < size; i++) {
+            int user = userIndex.get(ratings.accountId(i));
+            if (user == LongIntMap.MISSING) {
+                user = userIndex.size();
+                userIndex.put(ratings.accountId(i), user);
+                if (user == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, user * 2);
+                }
+                userIds[user] = ratings.accountId(i);
+            }
+            int item = itemIndex.get(ratings.movieId(i));
+            if (item == LongIntMap.MISSING) {
+                item = itemIndex.size();
+                itemIndex.put(ratings.movieId(i), item);
+                if (item == itemIds.length) {
+                    itemIds = Arrays.copyOf(itemIds, item * 2);
+                }
+                itemIds[item] = ratings.movieId(i);
+            }
+            users[i] = user;
+            items[i] = item;
+        }
+        int userCount = userIndex.size();
+        int itemCount = itemIndex.size();
+
+        int[] userCounts = new int[userCount];
+        int[] itemCounts = new int[itemCount];
+        for (int i = 0; i < size; i++) {
+            userCounts[users[i]]++;
+            itemCounts[items[i]]++;
+        }
+        int[] userOffsets = offsets(userCounts);
+        int[] itemOffsets = offsets(itemCounts);
+        int[] userItems = new int[size];
+        float[] userRatings = new float[size];
+        int[] itemUsers = new int[size];
+        float[] itemRatings = new float[size];
+        int[] userFill = Arrays.copyOf(userOffsets, userCount);
+        int[] itemFill = Arrays.copyOf(itemOffsets, itemCount);
+        for (int i = 0; i < size; i++) {
+            int user = users[i];
+            int item = items[i];
+            userItems[userFill[user]] = item;
+            userRatings[userFill[user]++] = ratings.rate(i);
+            itemUsers[itemFill[item]] = user;
+            itemRatings[itemFill[item]++] = ratings.rate(i);
+        }
+        return new RatingMatrix(Arrays.copyOf(userIds, userCount), Arrays.copyOf(itemIds, itemCount),
+                userIndex, itemIndex, userOffsets, userItems, userRatings, itemOffsets, itemUsers, itemRatings);
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public int itemCount() {
+        return itemIds.length;
+    }
+
+    public int ratingCount() {
+        return userItems.length;
+    }
+
+    static int[] offsets(int[] counts) {
+        int[] offsets = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,121 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache borné des listes de films recommandées, par utilisateur : éviction LRU au-delà de {@code maxEntries}
+ * et expiration après {@code ttlNanos}. Une entrée garde la liste classée complète, ce qui permet de servir
+ * toute demande d'au plus autant de films par un simple préfixe.
+ */
+public class RecommendationCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    // Incrémenté à chaque invalidation : un calcul commencé avant ne doit pas être mis en cache
+    private final AtomicLong version = new AtomicLong();
+
+    public RecommendationCache(int maxEntries, long ttlNanos) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > RecommendationCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Les {@code count} premiers films en cache pour l'utilisateur, ou null si l'entrée est absente,
+     * expirée ou trop courte pour la demande.
+     */
+    public List<Long> get(long userId, int count) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null && now - entry.createdAt > ttlNanos) {
+                entries.remove(userId);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null || (entry.ids.size() < count && !entry.complete)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.ids.subList(0, Math.min(count, entry.ids.size()));
+        }
+    }
+
+    // Version à relever avant de calculer une liste, puis à passer à put
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Met en cache la liste calculée, sauf si une invalidation est survenue depuis {@code version}.
+     * @param requested nombre de films demandés au moteur : une liste plus courte est complète
+     */
+    public void put(long userId, List<Long> ids, int requested, long version) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry = new Entry(List.copyOf(ids), ids.size() < requested, System.nanoTime());
+        synchronized (entries) {
+            if (this.version.get() == version) {
+                entries.put(userId, entry);
+            }
+        }
+    }
+
+    public void invalidate(long userId) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            if (entries.remove(userId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            version.incrementAndGet();
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        return new Stats(size, maxEntries, hitCount, missCount,
+                requests == 0 ? 0 : (double) hitCount / requests,
+                requests == 0 ? 0 : (double) missCount / requests,
+                evictions.get(), expirations.get(), invalidations.get());
+    }
+
+    private record Entry(List<Long> ids, boolean complete, long createdAt) {
+    }
+
+    public record Stats(int size, int maxEntries, long hits, long misses, double hitRate, double missRate,
+                        long evictions, long expirations, long invalidations) {
+    }
+}
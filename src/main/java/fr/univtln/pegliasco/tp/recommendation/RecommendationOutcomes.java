@@ -0,0 +1,75 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs d'issue des demandes de recommandation : une issue par requête servie,
+ * et la cause de chaque échec de l'API distante ayant conduit à un repli.
+ */
+public class RecommendationOutcomes {
+
+    public enum Outcome {
+        // Liste personnalisée servie depuis le cache
+        CACHE,
+        // Liste personnalisée calculée dans le processus (moteurs knn et als)
+        LOCAL,
+        // Liste personnalisée de l'API distante
+        REMOTE,
+        // Utilisateur sans note : sélection de démarrage à froid
+        COLD,
+        // API distante en échec : sélection de démarrage à froid calculée localement
+        FALLBACK
+    }
+
+    public enum Failure { TIMEOUT, BULKHEAD_REJECTED, CIRCUIT_OPEN, ERROR }
+
+    private final Map<Outcome, AtomicLong> outcomes = new EnumMap<>(Outcome.class);
+    private final Map<Failure, AtomicLong> failures = new EnumMap<>(Failure.class);
+
+    public RecommendationOutcomes() {
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+        for (Failure failure : Failure.values()) {
+            failures.put(failure, new AtomicLong());
+        }
+    }
+
+    public void record(Outcome outcome) {
+        outcomes.get(outcome).incrementAndGet();
+    }
+
+    public Failure recordFailure(Throwable error) {
+        Failure failure = classify(error);
+        failures.get(failure).incrementAndGet();
+        return failure;
+    }
+
+    // Instantané des compteurs, issues puis causes d'échec
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        outcomes.forEach((outcome, count) -> snapshot.put(outcome.name().toLowerCase(), count.get()));
+        failures.forEach((failure, count) -> snapshot.put("remote_" + failure.name().toLowerCase(), count.get()));
+        return snapshot;
+    }
+
+    private static Failure classify(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return Failure.TIMEOUT;
+        }
+        if (error instanceof BulkheadException) {
+            return Failure.BULKHEAD_REJECTED;
+        }
+        if (error instanceof CircuitBreakerOpenException) {
+            return Failure.CIRCUIT_OPEN;
+        }
+        return Failure.ERROR;
+    }
+}
@@ -0,0 +1,32 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durées cumulées d'une étape (nombre d'exécutions, total, maximum), sans verrou.
+ */
+public class StageTimer {
+    private final String name;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public StageTimer(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Ajoute {name}_count, {name}_avg_us et {name}_max_us à l'instantané
+    public void snapshot(Map<String, Long> snapshot) {
+        long executions = count.get();
+        snapshot.put(name + "_count", executions);
+        snapshot.put(name + "_avg_us", executions == 0 ? 0 : totalNanos.get() / executions / 1000);
+        snapshot.put(name + "_max_us", maxNanos.get() / 1000);
+    }
+}
@@ -0,0 +1,98 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import java.util.stream.IntStream;
+
+/**
+ * Tas binaire minimal de taille bornée : garde les {@code capacity} meilleurs scores vus.
+ * {@link #sorted()} et {@link #sortedScores()} rendent l'ordre décroissant sans vider le tas.
+ */
+final class TopN {
+    private final int[] items;
+    private final float[] scores;
+    private int size;
+
+    TopN(int capacity) {
+        items = new int[capacity];
+        scores = new float[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void offer(int item, float score) {
+        if (size < items.length) {
+            items[size] = item;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && score > scores[0]) {
+            items[0] = item;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    int[] sorted() {
+        int[] order = order();
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = items[order[i]];
+        }
+        return result;
+    }
+
+    float[] sortedScores() {
+        int[] order = order();
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = scores[order[i]];
+        }
+        return result;
+    }
+
+    private int[] order() {
+        return IntStream.range(0, size).boxed()
+                .sorted((a, b) -> Float.compare(scores[b], scores[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,51 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import fr.univtln.pegliasco.tp.importer.SyntheticAccounts;
+import fr.univtln.pegliasco.tp.model.Account;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Création massive de comptes via {@code COPY account FROM STDIN}, sans Hibernate.
+ */
+@ApplicationScoped
+public class AccountBulkRepository {
+
+    @Inject
+    DataSource dataSource;
+
+    // Crée un compte synthétique par identifiant, dans une seule transaction ; les ids doivent être absents de la base
+    public long copySynthetic(long[] ids) throws SQLException {
+        if (ids.length == 0) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PgCopyWriter writer = new PgCopyWriter(connection, "account",
+                    "id", "nom", "prenom", "email", "password", "role")) {
+                for (long id : ids) {
+                    writer.addLong(id)
+                            .addText(SyntheticAccounts.nom(id))
+                            .addText(SyntheticAccounts.prenom(id))
+                            .addText(SyntheticAccounts.email(id))
+                            .addText(SyntheticAccounts.lockedPassword())
+                            .addText(Account.Role.USER.name())
+                            .endRow();
+                }
+                long copied = writer.finish();
+                connection.commit();
+                return copied;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -127,6 +127,11 @@ public class AccountRepository {
                 .getResultList();
     }
 
+    // Identifiants seuls, sans charger les comptes ni leurs notes
+    public List<Long> findAllIds() {
+        return em.createQuery("SELECT a.id FROM Account a", Long.class).getResultList();
+    }
+
     public Map<Long, Account> findAllAsMap() {
         return em.createQuery("SELECT a FROM Account a", Account.class)
                 .getResultStream()
@@ -0,0 +1,64 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import fr.univtln.pegliasco.tp.model.ImportBatch;
+import fr.univtln.pegliasco.tp.model.ImportCheckpoint;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+@ApplicationScoped
+public class ImportCheckpointRepository {
+    @PersistenceContext
+    EntityManager entityManager;
+
+    public ImportCheckpoint findCheckpoint(String source) {
+        return entityManager.find(ImportCheckpoint.class, source);
+    }
+
+    public void saveCheckpoint(ImportCheckpoint checkpoint) {
+        entityManager.merge(checkpoint);
+    }
+
+    // Lots validés d'une source, par position croissante
+    public List<ImportBatch> findBatches(String source) {
+        return entityManager.createQuery(
+                        "SELECT b FROM ImportBatch b WHERE b.source = :source ORDER BY b.startOffset", ImportBatch.class)
+                .setParameter("source", source)
+                .getResultList();
+    }
+
+    // Supprime les lots désormais couverts par le point de reprise
+    public void deleteBatchesBefore(String source, long byteOffset) {
+        entityManager.createQuery("DELETE FROM ImportBatch b WHERE b.source = :source AND b.startOffset < :offset")
+                .setParameter("source", source)
+                .setParameter("offset", byteOffset)
+                .executeUpdate();
+    }
+
+    public void deleteAll(String source) {
+        entityManager.createQuery("DELETE FROM ImportBatch b WHERE b.source = :source")
+                .setParameter("source", source)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM ImportCheckpoint c WHERE c.source = :source")
+                .setParameter("source", source)
+                .executeUpdate();
+    }
+
+    // Variante JDBC, pour les écritures COPY qui ne passent pas par Hibernate
+    public static void insertBatch(Connection connection, ImportBatch batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO import_batch (source, start_offset, end_offset, end_line, content_hash) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setString(1, batch.getSource());
+            statement.setLong(2, batch.getStartOffset());
+            statement.setLong(3, batch.getEndOffset());
+            statement.setLong(4, batch.getEndLine());
+            statement.setString(5, batch.getContentHash());
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import fr.univtln.pegliasco.tp.importer.MovieLinks;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Renseigne les identifiants externes des films par paquets : une requête UPDATE ... FROM unnest(...)
+ * par paquet plutôt qu'une mise à jour par film.
+ */
+@ApplicationScoped
+public class MovieLinkRepository {
+    private static final int BATCH_SIZE = 10000;
+    private static final String UPDATE_LINKS = """
+            UPDATE movie SET imdb_id = l.imdb_id, tmdb_id = l.tmdb_id
+            FROM unnest(?::bigint[], ?::bigint[], ?::bigint[]) AS l(movie_id, imdb_id, tmdb_id)
+            WHERE movie.id = l.movie_id""";
+
+    @Inject
+    DataSource dataSource;
+
+    // Met à jour tous les films connus en une transaction et renvoie leur nombre ; les autres liens sont ignorés
+    public long update(MovieLinks links) throws SQLException {
+        if (links.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_LINKS)) {
+                long updated = 0;
+                for (int from = 0; from < links.size(); from += BATCH_SIZE) {
+                    int to = Math.min(from + BATCH_SIZE, links.size());
+                    Long[] movieIds = new Long[to - from];
+                    Long[] imdbIds = new Long[to - from];
+                    Long[] tmdbIds = new Long[to - from];
+                    for (int i = from; i < to; i++) {
+                        movieIds[i - from] = links.movieId(i);
+                        imdbIds[i - from] = links.imdbId(i) != 0 ? links.imdbId(i) : null;
+                        tmdbIds[i - from] = links.tmdbId(i) != 0 ? links.tmdbId(i) : null;
+                    }
+                    statement.setArray(1, connection.createArrayOf("bigint", movieIds));
+                    statement.setArray(2, connection.createArrayOf("bigint", imdbIds));
+                    statement.setArray(3, connection.createArrayOf("bigint", tmdbIds));
+                    updated += statement.executeUpdate();
+                }
+                connection.commit();
+                return updated;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
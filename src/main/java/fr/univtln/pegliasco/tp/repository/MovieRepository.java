@@ -8,6 +8,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -156,6 +157,35 @@ public class MovieRepository {
         entityManager.persist(movie);
     }
 
+    public Movie findByImdbId(long imdbId) {
+        return entityManager.createQuery("SELECT m FROM Movie m WHERE m.imdbId = :imdbId", Movie.class)
+                .setParameter("imdbId", imdbId)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    public Movie findByTmdbId(long tmdbId) {
+        return entityManager.createQuery("SELECT m FROM Movie m WHERE m.tmdbId = :tmdbId", Movie.class)
+                .setParameter("tmdbId", tmdbId)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    // Identifiants seuls, sans charger les films ni leurs collections EAGER
+    public List<Long> findAllIds() {
+        return entityManager.createQuery("SELECT m.id FROM Movie m", Long.class).getResultList();
+    }
+
+    // Films partageant au moins un de ces genres, identifiants seuls
+    public List<Long> findIdsByGenderIds(Collection<Long> genderIds) {
+        return entityManager.createQuery(
+                        "SELECT DISTINCT m.id FROM Movie m JOIN m.genders g WHERE g.id IN :ids", Long.class)
+                .setParameter("ids", genderIds)
+                .getResultList();
+    }
+
     public Map<Long, Movie> findAllAsMap() {
         return entityManager.createQuery("SELECT m FROM Movie m", Movie.class)
                 .getResultStream()
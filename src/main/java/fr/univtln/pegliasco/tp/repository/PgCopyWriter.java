@@ -0,0 +1,143 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Écrit des lignes au format texte de {@code COPY ... FROM STDIN} directement dans le flux du driver
+ * PostgreSQL. Les valeurs numériques sont encodées octet par octet dans un tampon réutilisé, sans
+ * passer par des String intermédiaires.
+ */
+public class PgCopyWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] NULL_VALUE = {'\\', 'N'};
+
+    private final CopyIn copyIn;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private int position;
+    private boolean firstField = true;
+    private long rows;
+
+    public PgCopyWriter(Connection connection, String table, String... columns) throws SQLException {
+        this(connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN"));
+    }
+
+    // Flux COPY déjà ouvert, ou substitut en mémoire pour mesurer l'encodage seul (benchmarks)
+    public PgCopyWriter(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    public PgCopyWriter addLong(long value) throws SQLException {
+        separator();
+        if (value == Long.MIN_VALUE) {
+            writeBytes(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return this;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        ensureCapacity(length);
+        while (length > 0) {
+            buffer[position++] = digits[--length];
+        }
+        return this;
+    }
+
+    public PgCopyWriter addFloat(float value) throws SQLException {
+        separator();
+        writeBytes(Float.toString(value).getBytes(StandardCharsets.US_ASCII));
+        return this;
+    }
+
+    public PgCopyWriter addText(String value) throws SQLException {
+        separator();
+        if (value == null) {
+            writeBytes(NULL_VALUE);
+            return this;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            // Échappement imposé par le format texte de COPY
+            switch (b) {
+                case '\\' -> { writeByte('\\'); writeByte('\\'); }
+                case '\t' -> { writeByte('\\'); writeByte('t'); }
+                case '\n' -> { writeByte('\\'); writeByte('n'); }
+                case '\r' -> { writeByte('\\'); writeByte('r'); }
+                default -> writeByte(b);
+            }
+        }
+        return this;
+    }
+
+    public PgCopyWriter addNull() throws SQLException {
+        separator();
+        writeBytes(NULL_VALUE);
+        return this;
+    }
+
+    public void endRow() throws SQLException {
+        writeByte('\n');
+        firstField = true;
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // Termine le COPY et renvoie le nombre de lignes insérées côté serveur
+    public long finish() throws SQLException {
+        flush();
+        return copyIn.endCopy();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+
+    private void separator() throws SQLException {
+        if (!firstField) {
+            writeByte('\t');
+        }
+        firstField = false;
+    }
+
+    private void writeByte(int b) throws SQLException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) throws SQLException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensureCapacity(int length) throws SQLException {
+        if (position + length > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (position > 0) {
+            copyIn.writeToCopy(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+import fr.univtln.pegliasco.tp.model.ImportBatch;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Chargement massif des notes via {@code COPY rating FROM STDIN}, sans passer par Hibernate.
+ * Les clés étrangères doivent avoir été vérifiées par l'appelant.
+ * <p>
+ * Sert aussi à relire toute la table en colonnes primitives pour les modèles de recommandation.
+ */
+@ApplicationScoped
+public class RatingBulkRepository {
+    private static final int FETCH_SIZE = 10000;
+
+    @Inject
+    DataSource dataSource;
+
+    public long copy(RatingBatch batch) throws SQLException {
+        return copy(batch, null);
+    }
+
+    // Insère un lot de notes dans sa propre transaction, avec sa trace de reprise éventuelle,
+    // et renvoie le nombre de lignes copiées
+    public long copy(RatingBatch batch, ImportBatch importBatch) throws SQLException {
+        if (batch.isEmpty() && importBatch == null) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                // Réservés avant d'ouvrir le COPY, qui occupe la connexion jusqu'à sa fin
+                long[] ids = SequenceIds.allocate(connection, "rating_seq", batch.size());
+                long copied;
+                try (PgCopyWriter writer = new PgCopyWriter(connection, "rating",
+                        "id", "rate", "account_id", "movie_id", "timestamp")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        writer.addLong(ids[i])
+                                .addFloat(batch.rate(i))
+                                .addLong(batch.accountId(i))
+                                .addLong(batch.movieId(i))
+                                .addLong(batch.timestamp(i))
+                                .endRow();
+                    }
+                    copied = writer.finish();
+                }
+                if (importBatch != null) {
+                    ImportCheckpointRepository.insertBatch(connection, importBatch);
+                }
+                connection.commit();
+                return copied;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // Toutes les notes en un lot, lues par curseur (fetch size) pour ne pas matérialiser le ResultSet entier
+    public RatingBatch readAll() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // Le pilote PostgreSQL n'utilise un curseur qu'hors auto-commit
+            connection.setAutoCommit(false);
+            try {
+                int count;
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT count(*) FROM rating")) {
+                    rs.next();
+                    count = rs.getInt(1);
+                }
+                RatingBatch batch = new RatingBatch(count);
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT account_id, movie_id, rate, timestamp FROM rating LIMIT ?")) {
+                    statement.setInt(1, count);
+                    statement.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            batch.add(rs.getLong(1), rs.getLong(2), rs.getFloat(3), rs.getLong(4));
+                        }
+                    }
+                }
+                connection.commit();
+                return batch;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
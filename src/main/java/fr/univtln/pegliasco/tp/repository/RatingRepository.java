@@ -3,11 +3,13 @@ package fr.univtln.pegliasco.tp.repository;
 import fr.univtln.pegliasco.encryption.differential_privacy.MakeNoise;
 import fr.univtln.pegliasco.tp.model.Rating;
 import fr.univtln.pegliasco.tp.model.RatingCache;
+import fr.univtln.pegliasco.tp.model.view.MovieRatingStat;
 import fr.univtln.pegliasco.tp.model.view.RatingId;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import java.util.Collection;
 import java.util.List;
 
 @ApplicationScoped
@@ -92,6 +94,14 @@ public class RatingRepository {
         return ids.size() > maxLimit;
     }
 
+    // Parmi les comptes donnés, ceux qui ont au moins une note
+    public List<Long> findRatedAccountIds(Collection<Long> accountIds) {
+        return entityManager.createQuery(
+                "SELECT DISTINCT r.account.id FROM Rating r WHERE r.account.id IN :accountIds", Long.class)
+                .setParameter("accountIds", accountIds)
+                .getResultList();
+    }
+
     public double getAverageRating(Long movieId) {
         Double avg = entityManager
                 .createQuery("SELECT AVG(r.rate) FROM Rating r WHERE r.movie.id = :movieId", Double.class)
@@ -100,6 +110,14 @@ public class RatingRepository {
         return avg != null ? avg : 0.0;
     }
 
+    // Effectif et somme des notes de tous les films en une seule requête agrégée
+    public List<MovieRatingStat> findMovieRatingStats() {
+        return entityManager.createQuery(
+                "SELECT new fr.univtln.pegliasco.tp.model.view.MovieRatingStat(r.movie.id, COUNT(r), SUM(r.rate))"
+                        + " FROM Rating r GROUP BY r.movie.id",
+                MovieRatingStat.class).getResultList();
+    }
+
     public Long getNumberOfRatings(Long movieId) {
         Long count = entityManager
                 .createQuery("SELECT COUNT(r) FROM Rating r WHERE r.movie.id = :movieId", Long.class)
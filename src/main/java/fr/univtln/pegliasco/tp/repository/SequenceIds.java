@@ -0,0 +1,55 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Réservation d'identifiants pour les chargements COPY sur les séquences partagées avec Hibernate.
+ * Avec l'optimiseur pooled-lo, chaque nextval réserve la plage [v, v + pas - 1] : les blocs réservés ici
+ * et ceux des insertions JPA ne se chevauchent jamais.
+ */
+public final class SequenceIds {
+
+    private SequenceIds() {
+    }
+
+    // Réserve count identifiants en un aller-retour (un nextval par bloc de la taille du pas)
+    public static long[] allocate(Connection connection, String sequence, int count) throws SQLException {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        long increment = increment(connection, sequence);
+        long blocks = (count + increment - 1) / increment;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT nextval(?::regclass) FROM generate_series(1, ?)")) {
+            statement.setString(1, sequence);
+            statement.setLong(2, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next() && i < count) {
+                    long low = resultSet.getLong(1);
+                    for (long k = 0; k < increment && i < count; k++) {
+                        ids[i++] = low + k;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static long increment(Connection connection, String sequence) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?")) {
+            statement.setString(1, sequence);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Séquence introuvable : " + sequence);
+                }
+                return Math.max(1, resultSet.getLong(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Accès catalogue et {@code COPY ... (FORMAT binary)} pour les instantanés de la base.
+ * Les tables sont découvertes dans pg_catalog plutôt que listées à la main, afin de suivre le schéma Hibernate.
+ */
+@ApplicationScoped
+public class SnapshotRepository {
+
+    /**
+     * Tables du schéma courant, chaque table apparaissant après celles qu'elle référence
+     * (ordre de chargement compatible avec les clés étrangères).
+     */
+    public List<String> findTablesInDependencyOrder(Connection connection) throws SQLException {
+        Map<String, Set<String>> parents = new TreeMap<>();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                            + "WHERE n.nspname = current_schema() AND c.relkind = 'r'")) {
+                while (rs.next()) {
+                    parents.put(rs.getString(1), new TreeSet<>());
+                }
+            }
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT child.relname, parent.relname FROM pg_constraint con "
+                            + "JOIN pg_class child ON child.oid = con.conrelid "
+                            + "JOIN pg_class parent ON parent.oid = con.confrelid "
+                            + "JOIN pg_namespace n ON n.oid = child.relnamespace "
+                            + "WHERE con.contype = 'f' AND n.nspname = current_schema()")) {
+                while (rs.next()) {
+                    String child = rs.getString(1);
+                    String parent = rs.getString(2);
+                    // Une auto-référence n'impose pas d'ordre entre tables
+                    if (!child.equals(parent) && parents.containsKey(child) && parents.containsKey(parent)) {
+                        parents.get(child).add(parent);
+                    }
+                }
+            }
+        }
+
+        // Tri topologique (Kahn), par ordre alphabétique à dépendances égales pour rester déterministe
+        List<String> ordered = new ArrayList<>();
+        Set<String> remaining = new TreeSet<>(parents.keySet());
+        while (!remaining.isEmpty()) {
+            String next = null;
+            for (String table : remaining) {
+                if (ordered.containsAll(parents.get(table))) {
+                    next = table;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new SQLException("Dépendances circulaires entre les tables " + remaining);
+            }
+            ordered.add(next);
+            remaining.remove(next);
+        }
+        return ordered;
+    }
+
+    // Description des colonnes (table, nom, type, position) : toute évolution change l'empreinte de l'instantané
+    public String describeSchema(Connection connection) throws SQLException {
+        StringBuilder schema = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT table_name, column_name, data_type, ordinal_position FROM information_schema.columns "
+                             + "WHERE table_schema = current_schema() ORDER BY table_name, ordinal_position")) {
+            while (rs.next()) {
+                schema.append(rs.getString(1)).append('.').append(rs.getString(2))
+                        .append(':').append(rs.getString(3)).append('#').append(rs.getInt(4)).append('\n');
+            }
+        }
+        return schema.toString();
+    }
+
+    // Dernière valeur de chaque séquence déjà utilisée du schéma courant (identity comprises)
+    public Map<String, Long> findSequenceValues(Connection connection) throws SQLException {
+        Map<String, Long> values = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT sequencename, last_value FROM pg_sequences "
+                             + "WHERE schemaname = current_schema() AND last_value IS NOT NULL ORDER BY sequencename")) {
+            while (rs.next()) {
+                values.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return values;
+    }
+
+    public void setSequenceValue(Connection connection, String sequence, long value) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT setval(?::regclass, ?, true)")) {
+            statement.setString(1, quote(sequence));
+            statement.setLong(2, value);
+            statement.execute();
+        }
+    }
+
+    public boolean isEmpty(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + quote(table) + ")")) {
+            rs.next();
+            return !rs.getBoolean(1);
+        }
+    }
+
+    public long exportTable(Connection connection, String table, OutputStream out) throws SQLException, IOException {
+        return copyManager(connection).copyOut("COPY " + quote(table) + " TO STDOUT (FORMAT binary)", out);
+    }
+
+    public long restoreTable(Connection connection, String table, InputStream in) throws SQLException, IOException {
+        return copyManager(connection).copyIn("COPY " + quote(table) + " FROM STDIN (FORMAT binary)", in);
+    }
+
+    // Statistiques du planificateur à jour après un chargement massif
+    public void analyze(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE " + quote(table));
+        }
+    }
+
+    private static CopyManager copyManager(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
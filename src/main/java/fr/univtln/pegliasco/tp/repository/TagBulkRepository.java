@@ -0,0 +1,132 @@
+package fr.univtln.pegliasco.tp.repository;
+
+import fr.univtln.pegliasco.tp.importer.LongHashSet;
+import fr.univtln.pegliasco.tp.importer.TagGraph;
+import fr.univtln.pegliasco.tp.model.ImportBatch;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chargement massif des tags : les identifiants sont réservés sur la séquence {@code tag_seq} partagée avec Hibernate,
+ * puis tags et liens {@code tag_movie} sont envoyés par {@code COPY}, sans entité ni merge. Les tags déjà en base
+ * (même compte, même libellé) sont réutilisés plutôt que dupliqués.
+ */
+@ApplicationScoped
+public class TagBulkRepository {
+
+    @Inject
+    DataSource dataSource;
+
+    // Insère tout le graphe dans une seule transaction, avec sa trace de reprise éventuelle,
+    // et renvoie le nombre de liens tag-film copiés
+    public long copy(TagGraph graph, ImportBatch importBatch) throws SQLException {
+        if (graph.tagCount() == 0 && importBatch == null) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                // Un import repris peut relire un couple compte / libellé déjà en base : on réutilise son tag
+                long[] ids = new long[graph.tagCount()];
+                LongHashSet existingLinks = resolveExisting(connection, graph, ids);
+                int created = 0;
+                for (long id : ids) {
+                    if (id == 0) {
+                        created++;
+                    }
+                }
+                long[] newIds = SequenceIds.allocate(connection, "tag_seq", created);
+                try (PgCopyWriter writer = new PgCopyWriter(connection, "tag", "id", "name", "account_id")) {
+                    int next = 0;
+                    for (int tag = 0; tag < graph.tagCount(); tag++) {
+                        if (ids[tag] != 0) {
+                            continue;
+                        }
+                        ids[tag] = newIds[next++];
+                        writer.addLong(ids[tag])
+                                .addText(graph.name(tag))
+                                .addLong(graph.accountId(tag))
+                                .endRow();
+                    }
+                    writer.finish();
+                }
+                long copied;
+                try (PgCopyWriter writer = new PgCopyWriter(connection, "tag_movie", "tag_id", "movie_id")) {
+                    long[] links = graph.links().toArray();
+                    for (long link : links) {
+                        if (existingLinks.contains(link)) {
+                            continue;
+                        }
+                        writer.addLong(ids[TagGraph.linkTag(link)])
+                                .addLong(TagGraph.linkMovie(link))
+                                .endRow();
+                    }
+                    copied = writer.finish();
+                }
+                if (importBatch != null) {
+                    ImportCheckpointRepository.insertBatch(connection, importBatch);
+                }
+                connection.commit();
+                return copied;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Renseigne dans {@code ids} l'identifiant des tags du graphe déjà en base (0 pour les nouveaux),
+     * en une requête sur les comptes concernés, et renvoie leurs liens déjà présents, codés comme dans le graphe.
+     */
+    private static LongHashSet resolveExisting(Connection connection, TagGraph graph, long[] ids) throws SQLException {
+        LongHashSet existingLinks = new LongHashSet();
+        if (graph.tagCount() == 0) {
+            return existingLinks;
+        }
+        LongHashSet accounts = new LongHashSet();
+        for (int tag = 0; tag < graph.tagCount(); tag++) {
+            accounts.add(graph.accountId(tag));
+        }
+        Map<Long, Integer> tagsById = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, account_id, name FROM tag WHERE account_id = ANY(?::bigint[])")) {
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    Arrays.stream(accounts.toArray()).boxed().toArray(Long[]::new)));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    int tag = graph.find(rs.getLong(2), rs.getString(3));
+                    if (tag >= 0 && ids[tag] == 0) {
+                        ids[tag] = rs.getLong(1);
+                        tagsById.put(ids[tag], tag);
+                    }
+                }
+            }
+        }
+        if (tagsById.isEmpty()) {
+            return existingLinks;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT tag_id, movie_id FROM tag_movie WHERE tag_id = ANY(?::bigint[])")) {
+            statement.setArray(1, connection.createArrayOf("bigint", tagsById.keySet().toArray(Long[]::new)));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    existingLinks.add(((long) tagsById.get(rs.getLong(1)) << 32) | rs.getLong(2));
+                }
+            }
+        }
+        return existingLinks;
+    }
+}
@@ -99,6 +99,11 @@ public class AccountService {
         return account;
     }
 
+    //findAllIds
+    public List<Long> findAllIds() {
+        return accountRepository.findAllIds();
+    }
+
     //findAllAsMap
     public Map<Long, Account> findAllAsMap() {
         return accountRepository.findAllAsMap();
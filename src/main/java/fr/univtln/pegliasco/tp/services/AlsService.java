@@ -0,0 +1,328 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+import fr.univtln.pegliasco.tp.model.view.MovieAdded;
+import fr.univtln.pegliasco.tp.model.view.RatingChange;
+import fr.univtln.pegliasco.tp.recommendation.AlsFactorStore;
+import fr.univtln.pegliasco.tp.recommendation.AlsModel;
+import fr.univtln.pegliasco.tp.recommendation.AlsTrainer;
+import fr.univtln.pegliasco.tp.recommendation.HnswIndex;
+import fr.univtln.pegliasco.tp.recommendation.LongIntMap;
+import fr.univtln.pegliasco.tp.recommendation.OnlineAlsUpdater;
+import fr.univtln.pegliasco.tp.recommendation.RatingMatrix;
+import fr.univtln.pegliasco.tp.repository.MovieRepository;
+import fr.univtln.pegliasco.tp.repository.RatingBulkRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongPredicate;
+
+/**
+ * Recommandation par factorisation matricielle ALS dans le processus.
+ * Au premier appel, le dernier fichier de facteurs du répertoire partagé est projeté en mémoire ;
+ * à défaut, le modèle est entraîné puis enregistré. {@link #rebuild()} entraîne et publie une nouvelle version.
+ * <p>
+ * Les requêtes ne calculent pas le score de chaque film : elles interrogent un index HNSW des facteurs films,
+ * enregistré avec la version. Un film créé depuis l'entraînement y est inséré, en tâche asynchrone, avec la
+ * moyenne des vecteurs des films de mêmes genres ; cette insertion vit en mémoire jusqu'au prochain entraînement.
+ * <p>
+ * Chaque note ajoutée ou modifiée déplace aussitôt le vecteur de l'utilisateur d'un pas de gradient
+ * ({@link OnlineAlsUpdater}) : la requête suivante en tient compte sans attendre de réentraînement.
+ * Ces mises à jour ne concernent que le moteur {@code recommendation.engine=als}, seul à charger le modèle.
+ */
+@ApplicationScoped
+public class AlsService implements LocalRecommender {
+    private static final Logger logger = Logger.getLogger(AlsService.class);
+
+    // Versions des facteurs gardées sur disque
+    private static final int RETAINED_VERSIONS = 3;
+
+    @Inject
+    RatingBulkRepository ratingBulkRepository;
+
+    @Inject
+    MovieRatingStatsService movieRatingStatsService;
+
+    @Inject
+    MovieRepository movieRepository;
+
+    // Insertion des films créés, hors du thread qui valide la transaction
+    @Inject
+    Event<MovieAdded> movieIndexing;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.als.factors", defaultValue = "32")
+    int factors;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.als.iterations", defaultValue = "10")
+    int iterations;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.als.lambda", defaultValue = "0.1")
+    float lambda;
+
+    // true : notes traitées comme des signaux de confiance 1 + alpha * note (ALS implicite)
+    @Inject
+    @ConfigProperty(name = "recommendation.als.implicit", defaultValue = "false")
+    boolean implicit;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.als.alpha", defaultValue = "40")
+    float alpha;
+
+    // Threads d'entraînement, 0 : un par cœur
+    @Inject
+    @ConfigProperty(name = "recommendation.als.parallelism", defaultValue = "0")
+    int parallelism;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.als.store-dir", defaultValue = "data/als")
+    String storeDir;
+
+    // Index HNSW : voisins par nœud, largeur de file à la construction et à la recherche (0 : parcours exhaustif)
+    @Inject
+    @ConfigProperty(name = "recommendation.hnsw.m", defaultValue = "16")
+    int hnswM;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.hnsw.ef-construction", defaultValue = "200")
+    int hnswEfConstruction;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.hnsw.ef-search", defaultValue = "100")
+    int hnswEfSearch;
+
+    // Apprentissage en ligne : pas de gradient par note, appliqué aussi aux vecteurs films si update-items
+    @Inject
+    @ConfigProperty(name = "recommendation.online.enabled", defaultValue = "true")
+    boolean onlineEnabled;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.online.learning-rate", defaultValue = "0.05")
+    float onlineLearningRate;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.online.update-items", defaultValue = "false")
+    boolean onlineUpdateItems;
+
+    private AlsFactorStore store;
+    private ForkJoinPool pool;
+    private volatile Loaded loaded;
+
+    // Un modèle, l'index construit sur ses facteurs films et les mises à jour en ligne, remplacés ensemble
+    private record Loaded(AlsModel model, HnswIndex index, OnlineAlsUpdater online) {
+    }
+
+    @PostConstruct
+    void createStore() {
+        store = new AlsFactorStore(Path.of(storeDir), RETAINED_VERSIONS);
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public void rebuild() {
+        train();
+    }
+
+    // Entraîne et enregistre une nouvelle version ; les requêtes en cours continuent sur l'ancienne
+    private synchronized Loaded train() {
+        long start = System.nanoTime();
+        RatingBatch ratings;
+        try {
+            ratings = ratingBulkRepository.readAll();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Lecture des notes impossible", e);
+        }
+        long read = System.nanoTime();
+        AlsTrainer.Params params = new AlsTrainer.Params(factors, iterations, lambda, implicit, alpha, 42L);
+        AlsTrainer trainer = new AlsTrainer(params, pool);
+        AlsModel trained = trainer.train(RatingMatrix.of(ratings), System.currentTimeMillis());
+        long computed = System.nanoTime();
+        HnswIndex index = HnswIndex.of(trained, hnswM, hnswEfConstruction);
+        long indexed = System.nanoTime();
+        try {
+            Path file = store.write(trained);
+            store.writeIndex(trained.getVersion(), index);
+            logger.infof("Facteurs ALS enregistrés dans %s", file);
+        } catch (IOException e) {
+            // Le modèle reste utilisable dans ce processus, seules les autres répliques ne le verront pas
+            logger.warnf("Enregistrement des facteurs ALS impossible : %s", e.toString());
+        }
+        logger.infof("Modèle ALS v%d : %,d notes, %,d utilisateurs, %,d films, %d facteurs "
+                        + "(lecture %d ms, calcul %d ms, index %d ms)",
+                trained.getVersion(), ratings.size(), trained.getUserCount(), trained.getItemCount(), factors,
+                (read - start) / 1_000_000, (computed - read) / 1_000_000, (indexed - computed) / 1_000_000);
+        Loaded previous = loaded;
+        if (previous != null) {
+            logger.debugf("Mises à jour en ligne de %d utilisateurs remplacées par l'entraînement",
+                    previous.online().getUpdatedUserCount());
+        }
+        Loaded built = loaded(trained, index);
+        loaded = built;
+        return built;
+    }
+
+    @Override
+    public List<Long> recommend(long userId, int count) {
+        Loaded current = current();
+        float[] user = current.online().userVector(userId);
+        if (user == null) {
+            return popular(count);
+        }
+        LongIntMap rated = current.online().ratedItems(userId);
+        // Les films déjà notés occupent des places de la file : elle est élargie d'autant
+        LongPredicate excluded = id -> rated.get(id) != LongIntMap.MISSING;
+        List<Long> ranked = search(current.index(), user, count, rated.size(), excluded);
+        return ranked.isEmpty() ? popular(count) : ranked;
+    }
+
+    @Override
+    public List<Long> similar(long movieId, int count) {
+        HnswIndex index = current().index();
+        float[] movie = index.vector(movieId);
+        if (movie == null) {
+            return List.of();
+        }
+        return search(index, movie, count, 1, id -> id == movieId);
+    }
+
+    @Override
+    public List<Long> popular(int count) {
+        return movieRatingStatsService.topRated(count);
+    }
+
+    /**
+     * Note ajoutée ou modifiée : pas de gradient sur le vecteur de l'utilisateur ; note supprimée : le film
+     * redevient recommandable. Sans effet tant que le modèle n'est pas chargé, donc hors moteur {@code als}.
+     */
+    void onRatingChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) RatingChange change) {
+        Loaded current = loaded;
+        if (!onlineEnabled || current == null || change.accountId() == null) {
+            return;
+        }
+        if (change.rate() == null) {
+            current.online().remove(change.accountId(), change.movieId());
+            return;
+        }
+        if (!current.online().apply(change.accountId(), change.movieId(), change.rate())) {
+            logger.debugf("Film %d sans vecteur, note de %d prise en compte au prochain entraînement",
+                    change.movieId(), change.accountId());
+        }
+    }
+
+    // Film créé : l'estimation de son vecteur (requête et insertion dans l'index) ne retient pas la transaction
+    void onMovieAdded(@Observes(during = TransactionPhase.AFTER_SUCCESS) MovieAdded added) {
+        if (loaded == null || added.movieId() == null || added.genreIds().isEmpty()) {
+            return;
+        }
+        movieIndexing.fireAsync(added).whenComplete((event, failure) -> {
+            if (failure != null) {
+                logger.warnf("Insertion du film %d dans l'index HNSW impossible : %s", added.movieId(),
+                        failure.toString());
+            }
+        });
+    }
+
+    /**
+     * Film créé après l'entraînement : inséré dans l'index avec la moyenne des vecteurs des films indexés
+     * qui partagent un de ses genres. Ignoré si aucun voisin n'est connu.
+     */
+    @ActivateRequestContext
+    void indexMovie(@ObservesAsync MovieAdded added) {
+        Loaded current = loaded;
+        if (current == null) {
+            return;
+        }
+        HnswIndex index = current.index();
+        float[] mean = new float[index.getDims()];
+        int found = 0;
+        for (Long movieId : movieRepository.findIdsByGenderIds(added.genreIds())) {
+            float[] vector = index.vector(movieId);
+            if (vector != null) {
+                for (int f = 0; f < mean.length; f++) {
+                    mean[f] += vector[f];
+                }
+                found++;
+            }
+        }
+        if (found == 0) {
+            logger.debugf("Film %d sans voisin de genre indexé, absent de l'index jusqu'au prochain entraînement",
+                    added.movieId());
+            return;
+        }
+        for (int f = 0; f < mean.length; f++) {
+            mean[f] /= found;
+        }
+        index.add(added.movieId(), mean);
+    }
+
+    private List<Long> search(HnswIndex index, float[] query, int count, int excludedCount, LongPredicate excluded) {
+        if (hnswEfSearch <= 0) {
+            return index.exact(query, count, excluded);
+        }
+        return index.search(query, count, Math.max(hnswEfSearch, count) + excludedCount, excluded);
+    }
+
+    private Loaded loaded(AlsModel model, HnswIndex index) {
+        return new Loaded(model, index,
+                new OnlineAlsUpdater(model, index, onlineLearningRate, lambda, implicit, onlineUpdateItems));
+    }
+
+    private Loaded current() {
+        Loaded current = loaded;
+        if (current == null) {
+            synchronized (this) {
+                current = loaded;
+                if (current == null) {
+                    current = load().orElseGet(this::train);
+                    loaded = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Dernière version enregistrée et son index, reconstruit s'il manque
+    private Optional<Loaded> load() {
+        long start = System.nanoTime();
+        try {
+            Optional<AlsModel> latest = store.latest();
+            if (latest.isEmpty()) {
+                return Optional.empty();
+            }
+            AlsModel model = latest.get();
+            HnswIndex index = store.readIndex(model.getVersion()).orElse(null);
+            if (index == null) {
+                index = HnswIndex.of(model, hnswM, hnswEfConstruction);
+                store.writeIndex(model.getVersion(), index);
+            }
+            logger.infof("Facteurs ALS v%d chargés en %d ms (%,d utilisateurs, %,d films)", model.getVersion(),
+                    (System.nanoTime() - start) / 1_000_000, model.getUserCount(), model.getItemCount());
+            return Optional.of(loaded(model, index));
+        } catch (IOException e) {
+            logger.warnf("Lecture des facteurs ALS impossible, réentraînement : %s", e.toString());
+            return Optional.empty();
+        }
+    }
+}
@@ -1,13 +1,33 @@
     package fr.univtln.pegliasco.tp.services;
 
     import com.opencsv.CSVParserBuilder;
-    import com.opencsv.CSVReaderBuilder;
-    import com.opencsv.exceptions.CsvValidationException;
+    import fr.univtln.pegliasco.tp.importer.Chunk;
+    import fr.univtln.pegliasco.tp.importer.ChunkMapper;
+    import fr.univtln.pegliasco.tp.importer.ChunkSource;
+    import fr.univtln.pegliasco.tp.importer.ChunkWriter;
+    import fr.univtln.pegliasco.tp.importer.CsvArchive;
+    import fr.univtln.pegliasco.tp.importer.CsvChunkSource;
+    import fr.univtln.pegliasco.tp.importer.ImportException;
+    import fr.univtln.pegliasco.tp.importer.ImportExecutor;
+    import fr.univtln.pegliasco.tp.importer.ImportProgress;
+    import fr.univtln.pegliasco.tp.importer.ImportResume;
+    import fr.univtln.pegliasco.tp.importer.LongHashSet;
+    import fr.univtln.pegliasco.tp.importer.MappedCsvSource;
+    import fr.univtln.pegliasco.tp.importer.MovieCsvParser;
+    import fr.univtln.pegliasco.tp.importer.MovieLinks;
+    import fr.univtln.pegliasco.tp.importer.NumericLineReader;
+    import fr.univtln.pegliasco.tp.importer.RatingBatch;
+    import fr.univtln.pegliasco.tp.importer.SourcePosition;
+    import fr.univtln.pegliasco.tp.importer.TagGraph;
     import fr.univtln.pegliasco.tp.model.*;
     import fr.univtln.pegliasco.tp.model.nosql.Elastic.GenderElastic;
     import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
     import fr.univtln.pegliasco.tp.model.nosql.Mapper.GenderMapper;
     import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
+    import fr.univtln.pegliasco.tp.repository.AccountBulkRepository;
+    import fr.univtln.pegliasco.tp.repository.MovieLinkRepository;
+    import fr.univtln.pegliasco.tp.repository.RatingBulkRepository;
+    import fr.univtln.pegliasco.tp.repository.TagBulkRepository;
     import jakarta.enterprise.context.ApplicationScoped;
     import jakarta.inject.Inject;
     import jakarta.persistence.EntityManager;
@@ -16,16 +36,19 @@
 
     import java.io.IOException;
     import java.io.InputStream;
-    import java.io.InputStreamReader;
-    import java.text.ParseException;
-    import java.text.SimpleDateFormat;
+    import java.io.UncheckedIOException;
+    import java.net.MalformedURLException;
+    import java.net.URISyntaxException;
+    import java.net.URL;
+    import java.nio.file.Files;
+    import java.nio.file.Path;
+    import java.nio.file.StandardCopyOption;
+    import java.sql.SQLException;
     import java.util.*;
-    import java.util.concurrent.CompletableFuture;
+    import java.util.concurrent.ConcurrentHashMap;
 
+    import org.eclipse.microprofile.config.inject.ConfigProperty;
     import org.jboss.logging.Logger;
-    import com.opencsv.CSVReader;
-
-    import java.util.stream.Collectors;
 
     @ApplicationScoped
     public class CsvImporterService {
@@ -43,373 +66,772 @@
         EntityManagerFactory entityManagerFactory;
 
         @Inject
-        MovieElasticService movieElasticService;
-        @Inject
-        GenderElasticService genderElasticService;
+        ElasticBulkService elasticBulkService;
 
         private static final Logger logger = Logger.getLogger(CsvImporterService.class.getName());
         @Inject
         TagService tagService;
+        @Inject
+        RatingBulkRepository ratingBulkRepository;
+        @Inject
+        TagBulkRepository tagBulkRepository;
+        @Inject
+        AccountBulkRepository accountBulkRepository;
+        @Inject
+        MovieLinkRepository movieLinkRepository;
+        @Inject
+        MovieRatingStatsService movieRatingStatsService;
+        @Inject
+        ImportExecutor importExecutor;
+        @Inject
+        ImportCheckpointService importCheckpointService;
 
+        // "copy" : chargement COPY sans Hibernate, "jpa" : persistance entité par entité
+        @Inject
+        @ConfigProperty(name = "import.ratings.mode", defaultValue = "copy")
+        String ratingsImportMode;
 
-        public void importRatingsFromCsv(InputStream inputStream) throws IOException, CsvValidationException {
-            final int batchSize = 10000;
-            List<Rating> currentBatch = new ArrayList<>(batchSize);
+        // Reprise des imports à partir du dernier lot validé de chaque fichier source (schéma conservé uniquement)
+        @Inject
+        @ConfigProperty(name = "import.checkpoint.enabled", defaultValue = "false")
+        boolean checkpointEnabled;
+
+        // "mapped" : parseur numérique en projection mémoire pour les fichiers locaux, "csv" : OpenCSV en flux
+        @Inject
+        @ConfigProperty(name = "import.parser", defaultValue = "mapped")
+        String parser;
 
-            Map<Long, Account> accountCache = accountService.findAllAsMap();
-            Map<Long, Movie> movieCache = movieService.findAllAsMap();
+        // Taille des plages d'octets décodées en parallèle par le parseur projeté
+        @Inject
+        @ConfigProperty(name = "import.mapped.chunk-bytes", defaultValue = "4194304")
+        int mappedChunkBytes;
 
-            try (CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream))) {
-                String[] tokens;
-                csvReader.readNext(); // skip header
+        // Répertoire des fichiers de données, consulté avant le classpath : dans le jar, les ressources ne sont
+        // pas des fichiers et ne peuvent pas être projetées en mémoire
+        @Inject
+        @ConfigProperty(name = "import.data-dir")
+        Optional<String> dataDir;
 
 
-                while ((tokens = csvReader.readNext()) != null) {
-                    if (tokens.length >= 4) {
-                        Long userId = Long.parseLong(tokens[0]);
-                        Long movieId = Long.parseLong(tokens[1]);
-                        float ratingValue = Float.parseFloat(tokens[2]);
-                        Long timestamp = Long.parseLong(tokens[3]);
+        private boolean checkpointing(String sourceName) {
+            return checkpointEnabled && sourceName != null;
+        }
 
-                        Account account = accountCache.computeIfAbsent(userId, id -> accountService.findOrCreateById(id));
-                        if (account == null) {
-                            logger.info("Account not found for userId: " + userId);
-                            continue;
-                        };
-                        Movie movie = movieCache.get(movieId);
-                        if (movie == null) continue;
-
-                        Rating rating = new Rating();
-                        rating.setRate(ratingValue);
-                        rating.setAccount(account);
-                        rating.setMovie(movie);
-                        rating.setTimestamp(timestamp);
-                        currentBatch.add(rating);
-
-                        if (currentBatch.size() == batchSize) {
-                            persistBatchRating(currentBatch);
-                            currentBatch.clear();
-                        }
-                    }
-                }
+        private ImportResume resume(String sourceName) {
+            return checkpointing(sourceName) ? importCheckpointService.compact(sourceName) : ImportResume.fresh();
+        }
 
-                // Dernier batch
-                if (!currentBatch.isEmpty()) {
-                    persistBatchRating(currentBatch);
-                }
+        // Trace du lot à enregistrer dans la même transaction que ses données
+        private ImportBatch importBatch(String sourceName, Chunk<?> chunk) {
+            return checkpointing(sourceName) ? ImportBatch.of(sourceName, chunk.start(), chunk.end()) : null;
+        }
 
-                System.out.println("Import terminé depuis : " + inputStream.toString());
+        private void completeCheckpoint(String sourceName) {
+            if (checkpointing(sourceName)) {
+                importCheckpointService.compact(sourceName);
             }
         }
 
+        /**
+         * Fichier de données désigné par un chemin relatif : dans import.data-dir s'il y existe,
+         * sinon la ressource du classpath.
+         *
+         * @return null si le fichier est introuvable
+         * @throws IllegalArgumentException si le chemin est absolu ou remonte hors du répertoire de données
+         */
+        public URL resolve(String path) {
+            // Chemin fourni par le client : rien hors du répertoire de données ni du classpath ne doit être lisible
+            Path relative = Path.of(path);
+            if (relative.isAbsolute() || path.startsWith("/") || path.startsWith("\\")
+                    || Arrays.asList(path.split("[/\\\\]")).contains("..")) {
+                throw new IllegalArgumentException(
+                        "Chemin refusé (relatif au répertoire de données attendu) : " + path);
+            }
+            if (dataDir.isPresent()) {
+                Path root = Path.of(dataDir.get()).toAbsolutePath().normalize();
+                Path file = root.resolve(relative).normalize();
+                if (file.startsWith(root) && Files.isRegularFile(file)) {
+                    try {
+                        return file.toUri().toURL();
+                    } catch (MalformedURLException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+            return getClass().getClassLoader().getResource(path);
+        }
 
+        // Chemin du fichier si la ressource peut être projetée en mémoire, null sinon (jar, archive, réseau...)
+        private Path mappablePath(URL resource) {
+            if (!"mapped".equalsIgnoreCase(parser)) {
+                return null;
+            }
+            if (!"file".equals(resource.getProtocol())) {
+                logger.infof("%s n'est pas un fichier local, lecture en flux par OpenCSV (voir import.data-dir)",
+                        resource);
+                return null;
+            }
+            try {
+                return Path.of(resource.toURI());
+            } catch (URISyntaxException e) {
+                logger.warnf("Chemin de %s illisible, lecture en flux par OpenCSV : %s", resource, e.getMessage());
+                return null;
+            }
+        }
 
-        private void persistBatchRating(List<Rating> ratings) {
-            EntityManager em = entityManagerFactory.createEntityManager();
-            EntityTransaction tx = em.getTransaction();
 
-            try {
-                tx.begin();
+        // Deux lectures de la ressource : pré-passe des comptes, puis import des notes
+        public void importRatingsFromResource(URL resource, String sourceName, ImportProgress importProgress) throws IOException {
+            provisionRatingAccounts(resource, sourceName, new ImportProgress());
+            loadRatingsFromResource(resource, sourceName, importProgress);
+        }
 
-                for (int i = 0; i < ratings.size(); i++) {
-                    Rating r = ratings.get(i);
-                    em.persist(r);
+        /**
+         * Pré-passe seule : crée en une fois les comptes des utilisateurs du fichier de notes absents de la base.
+         * Les tags référencent les mêmes utilisateurs, d'où une étape distincte dans l'import de démarrage.
+         * Les lignes écrites de importProgress sont les comptes créés.
+         */
+        public void provisionRatingAccounts(URL resource, String sourceName, ImportProgress importProgress)
+                throws IOException {
+            ImportResume resume = resume(sourceName);
+            Path path = mappablePath(resource);
+            if (path != null) {
+                try (MappedCsvSource source = new MappedCsvSource(path, mappedChunkBytes, resume)) {
+                    importProgress.setBytesTotal(source.size());
+                    provisionAccounts(source, (block, progress) -> {
+                        LongHashSet userIds = new LongHashSet();
+                        NumericLineReader line = new NumericLineReader(block.bytes());
+                        while (line.hasNext()) {
+                            long userId = line.nextLong();
+                            line.nextLong();
+                            line.nextFloat();
+                            line.nextLong();
+                            if (line.endLine()) {
+                                userIds.add(userId);
+                            } else {
+                                progress.reject();
+                            }
+                        }
+                        return userIds;
+                    }, importProgress);
+                }
+                return;
+            }
+            try (InputStream inputStream = resource.openStream();
+                 CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), 50000, resume)) {
+                provisionAccounts(source, (rows, progress) -> {
+                    LongHashSet userIds = new LongHashSet(rows.size());
+                    for (String[] tokens : rows) {
+                        if (tokens.length >= 4) {
+                            userIds.add(Long.parseLong(tokens[0]));
+                        } else {
+                            progress.reject();
+                        }
+                    }
+                    return userIds;
+                }, importProgress);
+            }
+        }
 
-                    if (i % 1000 == 0) {
-                        em.flush();
-                        em.clear();
+        // Import des notes seul : les comptes doivent déjà exister (voir provisionRatingAccounts)
+        public void loadRatingsFromResource(URL resource, String sourceName, ImportProgress importProgress) throws IOException {
+            ImportResume resume = resume(sourceName);
+            Path path = mappablePath(resource);
+            try {
+                if (path != null && "copy".equalsIgnoreCase(ratingsImportMode)) {
+                    loadRatingsFromFile(path, sourceName, resume, importProgress);
+                } else {
+                    try (InputStream inputStream = resource.openStream()) {
+                        if ("copy".equalsIgnoreCase(ratingsImportMode)) {
+                            importRatingsWithCopy(inputStream, sourceName, resume, importProgress);
+                        } else {
+                            importRatingsWithJpa(inputStream, sourceName, resume, importProgress);
+                        }
                     }
                 }
+            } finally {
+                // Même interrompu, l'import a pu valider des lots : les statistiques seront recalculées
+                movieRatingStatsService.invalidate();
+            }
+            completeCheckpoint(sourceName);
+        }
 
-                em.flush();
-                em.clear();
-                tx.commit();
+        public void importMoviesFromResource(URL resource, String sourceName, ImportProgress importProgress) throws IOException {
+            importMoviesFromResource(resource, sourceName, importProgress, true);
+        }
 
-            } catch (Exception e) {
-                if (tx.isActive()) tx.rollback();
-                e.printStackTrace();
-            } finally {
-                em.close();
+        // indexElastic à false : films en base seulement, l'indexation étant confiée à ElasticReindexService
+        public void importMoviesFromResource(URL resource, String sourceName, ImportProgress importProgress,
+                                             boolean indexElastic) throws IOException {
+            try (InputStream inputStream = resource.openStream()) {
+                importMoviesFromCsv(inputStream, sourceName, importProgress, indexElastic);
             }
         }
 
-        private Date parseDateSafely(String dateStr) {
-            if (dateStr == null || dateStr.trim().equalsIgnoreCase("Unknown")) {
-                return null;
+        public void importLinksFromResource(URL resource, ImportProgress importProgress) throws IOException {
+            try (InputStream inputStream = resource.openStream()) {
+                importLinksFromCsv(inputStream, importProgress);
+            }
+        }
+
+        public void importArchiveFromResource(URL resource, String sourceName, ImportProgress importProgress) throws IOException {
+            try (InputStream inputStream = resource.openStream()) {
+                importArchive(inputStream, sourceName, importProgress);
             }
+        }
+
+        public void importTagsFromResource(URL resource, String sourceName, ImportProgress importProgress) throws IOException {
+            Path path = mappablePath(resource);
+            if (path != null) {
+                importTagsFromFile(path, sourceName, importProgress);
+                return;
+            }
+            try (InputStream inputStream = resource.openStream()) {
+                importTagsFromCsv(inputStream, sourceName, importProgress);
+            }
+        }
 
-            List<String> formats = List.of(
-                    "dd MMM yyyy",      // Ex: 22 Nov 1995
-                    "yyyy-MM-dd",       // Ex: 1995-12-29
-                    "yyyy/MM/dd"        // Ajoute ici d'autres formats si besoin
-            );
 
-            for (String format : formats) {
+        public void importRatingsFromCsv(InputStream inputStream) throws IOException {
+            importRatingsFromCsv(inputStream, null);
+        }
+
+        // sourceName identifie le fichier pour la reprise ; null désactive le suivi
+        public void importRatingsFromCsv(InputStream inputStream, String sourceName) throws IOException {
+            importRatingsFromCsv(inputStream, sourceName, new ImportProgress());
+        }
+
+        // importProgress est partagé avec l'appelant (job d'import) pour suivre et annuler l'import.
+        // En mode COPY le flux est lu une seule fois ; en mode JPA la pré-passe des comptes le relit,
+        // il est alors d'abord recopié dans un fichier temporaire.
+        public void importRatingsFromCsv(InputStream inputStream, String sourceName, ImportProgress importProgress) throws IOException {
+            if ("copy".equalsIgnoreCase(ratingsImportMode)) {
                 try {
-                    SimpleDateFormat sdf = new SimpleDateFormat(format, Locale.ENGLISH);
-                    sdf.setLenient(false);
-                    return sdf.parse(dateStr);
-                } catch (ParseException ignored) {
+                    importRatingsInOnePass(inputStream, sourceName, resume(sourceName), importProgress);
+                } finally {
+                    movieRatingStatsService.invalidate();
                 }
+                completeCheckpoint(sourceName);
+                return;
+            }
+            Path spool = Files.createTempFile("ratings-", ".csv");
+            try {
+                Files.copy(inputStream, spool, StandardCopyOption.REPLACE_EXISTING);
+                importRatingsFromResource(spool.toUri().toURL(), sourceName, importProgress);
+            } finally {
+                Files.deleteIfExists(spool);
             }
+        }
 
-            // Log si aucun format ne correspond
-            //System.out.println("Erreur de parsing de la date : " + dateStr);
-            return null;
+        /**
+         * Variante COPY sur un fichier local : les convertisseurs décodent en parallèle des plages disjointes
+         * du fichier projeté en mémoire, directement en colonnes primitives (userId,movieId,rating,timestamp).
+         */
+        private void loadRatingsFromFile(Path path, String sourceName, ImportResume resume, ImportProgress importProgress) throws IOException {
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
+
+            try (MappedCsvSource source = new MappedCsvSource(path, mappedChunkBytes, resume)) {
+                importProgress.setBytesTotal(source.size());
+                importExecutor.pipeline("ratings-mapped").run(source, (block, progress) -> {
+                    RatingBatch batch = new RatingBatch(block.lines());
+                    NumericLineReader line = new NumericLineReader(block.bytes());
+                    while (line.hasNext()) {
+                        long userId = line.nextLong();
+                        long movieId = line.nextLong();
+                        float rate = line.nextFloat();
+                        long timestamp = line.nextLong();
+                        if (!line.endLine() || !movieIds.contains(movieId) || !accountIds.contains(userId)) {
+                            progress.reject();
+                            continue;
+                        }
+                        batch.add(userId, movieId, rate, timestamp);
+                    }
+                    return batch;
+                }, chunk -> ratingBulkRepository.copy(chunk.payload(), importBatch(sourceName, chunk)), importProgress);
+            }
         }
 
+        private void importRatingsWithJpa(InputStream inputStream, String sourceName, ImportResume resume, ImportProgress importProgress) throws IOException {
+            final int batchSize = 10000;
 
+            // Identifiants seuls : comptes (déjà provisionnés par la pré-passe) et films ne sont pas chargés
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
 
-        public void importMoviesFromCsv(InputStream inputStream) throws IOException, CsvValidationException {
-            final int batchSize = 10000;
-            List<Movie> allMovies = new ArrayList<>();
-            Map<String, Gender> genreCache = new HashMap<>();
-
-            try (CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(inputStream))
-                    .withCSVParser(new CSVParserBuilder()
-                            .withSeparator(',')
-                            .withQuoteChar('"')
-                            .build())
-                    .build()) {
-
-                String[] tokens;
-                csvReader.readNext(); // Skip header
-
-                while ((tokens = csvReader.readNext()) != null) {
-                    if (tokens.length < 11) {
-                        //logger.warnf("Ligne ignorée (colonnes insuffisantes) : %s", Arrays.toString(tokens));
-                        continue;
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), batchSize, resume)) {
+                importExecutor.pipeline("ratings").run(source, (rows, progress) -> {
+                    RatingBatch batch = new RatingBatch(rows.size());
+                    for (String[] tokens : rows) {
+                        if (tokens.length < 4) {
+                            progress.reject();
+                            continue;
+                        }
+                        long userId = Long.parseLong(tokens[0]);
+                        long movieId = Long.parseLong(tokens[1]);
+                        if (!accountIds.contains(userId) || !movieIds.contains(movieId)) {
+                            progress.reject();
+                            continue;
+                        }
+                        batch.add(userId, movieId, Float.parseFloat(tokens[2]), Long.parseLong(tokens[3]));
                     }
+                    return batch;
+                }, chunk -> persistBatchRating(chunk.payload(), importBatch(sourceName, chunk)), importProgress);
+            }
 
-                    try {
-                        Movie movie = new Movie();
-                        movie.setId(Long.parseLong(tokens[0].trim()));
-                        movie.setTitle(tokens[1].trim());
-                        movie.setYear(parseDateSafely(tokens[2].trim()));
-                        if (movie.getYear() == null) {
-                            movie.setYear(new Date());
-                        };
-
-                        movie.setRuntime(Integer.parseInt(tokens[3].trim()));
-
-                        String[] genreNames = tokens[4].split("\\|");
-                        List<Gender> genderList = new ArrayList<>();
-                        for (String genreName : genreNames) {
-                            genreName = genreName.trim();
-                            Gender gender = genreCache.computeIfAbsent(genreName, name -> genderService.findOrCreateByName(name));
-                            genderList.add(gender);
-                        }
+            logger.infof("Import terminé depuis : %s", inputStream.toString());
+        }
 
-                        movie.setGenders(genderList);
+        // Variante COPY : les clés étrangères sont vérifiées sur les ids déjà en mémoire, Hibernate n'intervient pas
+        private void importRatingsWithCopy(InputStream inputStream, String sourceName, ImportResume resume, ImportProgress importProgress) throws IOException {
+            final int batchSize = 50000;
 
-                        movie.setDirector(tokens[5].trim());
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
 
-                        movie.setWriters(Arrays.stream(tokens[6].split("\\|"))
-                                .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList()));
-                        movie.setActors(Arrays.stream(tokens[7].split("\\|"))
-                                .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList()));
-                        movie.setPlot(tokens[8].trim());
-                        movie.setCountry(tokens[9].trim());
-                        movie.setPoster(tokens[10].trim());
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), batchSize, resume)) {
+                importExecutor.pipeline("ratings-copy").run(source, (rows, progress) -> {
+                    RatingBatch batch = new RatingBatch(rows.size());
+                    for (String[] tokens : rows) {
+                        if (tokens.length < 4) {
+                            progress.reject();
+                            continue;
+                        }
+                        long userId = Long.parseLong(tokens[0]);
+                        long movieId = Long.parseLong(tokens[1]);
+
+                        if (!movieIds.contains(movieId) || !accountIds.contains(userId)) {
+                            progress.reject();
+                            continue;
+                        }
+                        batch.add(userId, movieId, Float.parseFloat(tokens[2]), Long.parseLong(tokens[3]));
+                    }
+                    return batch;
+                }, chunk -> ratingBulkRepository.copy(chunk.payload(), importBatch(sourceName, chunk)), importProgress);
+            }
+        }
 
-                        allMovies.add(movie);
+        /**
+         * Variante COPY en une passe pour un flux non relisible (envoi HTTP) : les comptes manquants d'un lot
+         * sont créés par son écrivain juste avant le COPY des notes, ce qui remplace la pré-passe.
+         */
+        private void importRatingsInOnePass(InputStream inputStream, String sourceName, ImportResume resume, ImportProgress importProgress) throws IOException {
+            final int batchSize = 50000;
+
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
+
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), batchSize, resume)) {
+                importExecutor.pipeline("ratings-stream").run(source, (rows, progress) -> {
+                    RatingBatch batch = new RatingBatch(rows.size());
+                    for (String[] tokens : rows) {
+                        if (tokens.length < 4) {
+                            progress.reject();
+                            continue;
+                        }
+                        long movieId = Long.parseLong(tokens[1]);
+                        if (!movieIds.contains(movieId)) {
+                            progress.reject();
+                            continue;
+                        }
+                        batch.add(Long.parseLong(tokens[0]), movieId, Float.parseFloat(tokens[2]), Long.parseLong(tokens[3]));
+                    }
+                    return batch;
+                }, chunk -> {
+                    provisionMissingAccounts(accountIds, chunk.payload());
+                    return ratingBulkRepository.copy(chunk.payload(), importBatch(sourceName, chunk));
+                }, importProgress);
+            }
+        }
 
-                    } catch (Exception e) {
-                        logger.errorf(e, "Erreur lors du parsing de la ligne : %s", Arrays.toString(tokens));
+        // Partagé par les écrivains : un compte n'est créé qu'une fois, avant toute note qui le référence
+        private void provisionMissingAccounts(LongHashSet accountIds, RatingBatch batch) {
+            synchronized (accountIds) {
+                LongHashSet missing = new LongHashSet();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!accountIds.contains(batch.accountId(i))) {
+                        missing.add(batch.accountId(i));
                     }
                 }
+                if (missing.isEmpty()) {
+                    return;
+                }
+                try {
+                    accountBulkRepository.copySynthetic(missing.toArray());
+                } catch (SQLException e) {
+                    throw new ImportException("Échec de la création des comptes", e);
+                }
+                missing.forEach(accountIds::add);
+            }
+        }
+
+        /**
+         * Pré-passe des notes : les convertisseurs extraient les ids d'utilisateurs de chaque paquet, l'écrivain
+         * ne garde que ceux absents de la base, puis tous les comptes manquants sont créés en un seul COPY.
+         * La boucle d'import des notes ne touche ainsi jamais à la table account.
+         */
+        private <R> void provisionAccounts(ChunkSource<R> source, ChunkMapper<R, LongHashSet> userIds,
+                                           ImportProgress importProgress) {
+            LongHashSet existing = toLongHashSet(accountService.findAllIds());
+            LongHashSet missing = new LongHashSet();
+            importExecutor.pipeline("accounts").writers(1).run(source, userIds, chunk -> {
+                long before = missing.size();
+                chunk.payload().forEach(id -> {
+                    if (!existing.contains(id)) {
+                        missing.add(id);
+                    }
+                });
+                return missing.size() - before;
+            }, importProgress);
+            if (missing.isEmpty()) {
+                return;
             }
+            try {
+                long created = accountBulkRepository.copySynthetic(missing.toArray());
+                logger.infof("%d comptes créés pour les utilisateurs inconnus", created);
+            } catch (SQLException e) {
+                throw new ImportException("Échec de la création des comptes", e);
+            }
+        }
 
-            //logger.infof("Nombre total de films lus : %d", allMovies.size());
+        private static LongHashSet toLongHashSet(Collection<Long> ids) {
+            LongHashSet set = new LongHashSet(ids.size());
+            for (Long id : ids) {
+                set.add(id);
+            }
+            return set;
+        }
 
-            // Diviser en batches
-            List<List<Movie>> batches = new ArrayList<>();
-            for (int i = 0; i < allMovies.size(); i += batchSize) {
-                batches.add(allMovies.subList(i, Math.min(i + batchSize, allMovies.size())));
+        // Relations rattachées par référence (getReference) : aucun compte ni film n'est chargé
+        private long persistBatchRating(RatingBatch ratings, ImportBatch importBatch) {
+            if (ratings.isEmpty() && importBatch == null) {
+                return 0;
             }
+            EntityManager em = entityManagerFactory.createEntityManager();
+            EntityTransaction tx = em.getTransaction();
 
-            //logger.infof("Nombre total de batches à persister : %d", batches.size());
+            try {
+                tx.begin();
+
+                for (int i = 0; i < ratings.size(); i++) {
+                    Rating r = new Rating();
+                    r.setRate(ratings.rate(i));
+                    r.setAccount(em.getReference(Account.class, ratings.accountId(i)));
+                    r.setMovie(em.getReference(Movie.class, ratings.movieId(i)));
+                    r.setTimestamp(ratings.timestamp(i));
+                    em.persist(r);
 
-            // Persistance parallèle
-            List<CompletableFuture<Void>> futures = batches.stream()
-                    .map(batch -> CompletableFuture.runAsync(() -> persistBatchWithTransaction(batch)))
-                    .collect(Collectors.toList());
+                    if (i % 1000 == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
 
-            // Attendre la fin
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                if (importBatch != null) {
+                    em.persist(importBatch);
+                }
+                em.flush();
+                em.clear();
+                tx.commit();
+                return ratings.size();
 
-            // Après la persistance des films
-            List<Gender> allGenders = genderService.getAllGenders();
-            for (Gender gender : allGenders) {
-                GenderElastic genderElastic = GenderMapper.toElastic(gender);
-                genderElasticService.indexGender(genderElastic);
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                // Le paquet est perdu : l'échec remonte au pipeline, qui annule l'import au lieu de le compléter
+                logger.errorf(e, "Échec de l'insertion d'un paquet de %d notes", ratings.size());
+                throw new ImportException("Échec de l'insertion des notes", e);
+            } finally {
+                em.close();
             }
+        }
 
-            logger.infof("Importation terminée depuis le fichier : %s", inputStream.toString());
+        public void importMoviesFromCsv(InputStream inputStream) throws IOException {
+            importMoviesFromCsv(inputStream, null);
+        }
 
+        public void importMoviesFromCsv(InputStream inputStream, String sourceName) throws IOException {
+            importMoviesFromCsv(inputStream, sourceName, new ImportProgress());
+        }
 
+        public void importMoviesFromCsv(InputStream inputStream, String sourceName, ImportProgress importProgress) throws IOException {
+            importMoviesFromCsv(inputStream, sourceName, importProgress, true);
         }
 
+        public void importMoviesFromCsv(InputStream inputStream, String sourceName, ImportProgress importProgress,
+                                        boolean indexElastic) throws IOException {
+            final int batchSize = 1000;
+            Map<String, Gender> genreCache = new ConcurrentHashMap<>();
+            MovieCsvParser movieParser = new MovieCsvParser(
+                    name -> genreCache.computeIfAbsent(name, genderService::findOrCreateByName));
+
+            // Lecture, conversion et persistance (JPA + ES) se recouvrent sur l'exécuteur d'import
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder()
+                         .withSeparator(',')
+                         .withQuoteChar('"')
+                         .build(), batchSize, resume(sourceName));
+                 ElasticBulkService.BulkSession bulk = indexElastic ? elasticBulkService.openSession("movies") : null) {
+                importExecutor.pipeline("movies").run(source, (rows, progress) -> {
+                    List<Movie> movies = new ArrayList<>(rows.size());
+                    for (String[] tokens : rows) {
+                        if (!movieParser.accepts(tokens)) {
+                            //logger.warnf("Ligne ignorée (colonnes insuffisantes) : %s", Arrays.toString(tokens));
+                            progress.reject();
+                            continue;
+                        }
+                        try {
+                            movies.add(movieParser.parse(tokens));
+                        } catch (Exception e) {
+                            logger.errorf(e, "Erreur lors du parsing de la ligne : %s", Arrays.toString(tokens));
+                            progress.reject();
+                        }
+                    }
+                    return movies;
+                }, chunk -> persistBatchWithTransaction(chunk.payload(), bulk, importBatch(sourceName, chunk)), importProgress);
+
+                // Après la persistance des films
+                if (bulk != null) {
+                    List<Gender> allGenders = genderService.getAllGenders();
+                    for (Gender gender : allGenders) {
+                        GenderElastic genderElastic = GenderMapper.toElastic(gender);
+                        bulk.indexGender(genderElastic);
+                    }
+                }
+            }
+            completeCheckpoint(sourceName);
+
+            logger.infof("Importation terminée depuis le fichier : %s (%d noms distincts)",
+                    inputStream.toString(), movieParser.distinctNames());
 
 
-        private void persistBatchWithTransaction(List<Movie> movies) {
-            // Attendre qu'Elasticsearch soit prêt avant de commencer le batch
+        }
 
+        private long persistBatchWithTransaction(List<Movie> movies, ElasticBulkService.BulkSession bulk, ImportBatch importBatch) {
+            if (movies.isEmpty() && importBatch == null) {
+                return 0;
+            }
             EntityManager entityManager = em.getEntityManagerFactory().createEntityManager();
             entityManager.getTransaction().begin();
 
             try {
                 for (int i = 0; i < movies.size(); i++) {
-                    Movie movie = movies.get(i);
-                    try {
-                        entityManager.persist(movie);
-
-                        // Retry sur l'indexation Elasticsearch
-                        int maxRetries = 5;
-                        int retry = 0;
-                        boolean success = false;
-                        while (retry < maxRetries && !success) {
-                            try {
-                                MovieElastic movieElastic = MovieMapper.toElastic(movie);
-                                movieElasticService.indexMovie(movieElastic);
-                                success = true;
-                            } catch (IOException e) {
-                                retry++;
-                                if (retry >= maxRetries) {
-                                    e.printStackTrace();
-                                } else {
-                                    Thread.sleep(2000); // attendre 2s avant de réessayer
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        logger.errorf(e, "Erreur lors de la persistance du film : %s (ID=%d)", movie.getTitle(), movie.getId());
-                    }
+                    entityManager.persist(movies.get(i));
                     if (i % 1000 == 0) {
                         entityManager.flush();
                     }
                 }
+                if (importBatch != null) {
+                    entityManager.persist(importBatch);
+                }
                 entityManager.flush();
                 entityManager.getTransaction().commit();
 
-            } catch (Exception e) {
+            } catch (RuntimeException e) {
                 if (entityManager.getTransaction().isActive()) {
                     entityManager.getTransaction().rollback();
                 }
-                logger.error("Erreur lors de la persistance batch", e);
+                // Comme pour les notes : un paquet perdu fait échouer l'import, les étapes dépendantes ne tournent pas
+                logger.errorf(e, "Échec de l'insertion d'un paquet de %d films", movies.size());
+                throw new ImportException("Échec de l'insertion des films", e);
 
             } finally {
                 entityManager.close();
             }
-        }
-
-
-        public void importTagsFromCsv(InputStream inputStream) throws IOException, CsvValidationException {
-            final int batchSize = 5000;
 
-            // Mise en cache des comptes et films
-            Map<Long, Account> accountCache = accountService.findAllAsMap();
-            Map<Long, Movie> movieCache = movieService.findAllAsMap();
-
-            // Map pour éviter les doublons de tags : "tagName::userId"
-            Map<String, Tag> tagMap = new HashMap<>();
-
-            try (CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream))) {
-                String[] tokens;
-                csvReader.readNext(); // skip header
-
-                while ((tokens = csvReader.readNext()) != null) {
-                    if (tokens.length >= 3) {
-                        Long userId = Long.parseLong(tokens[0]);
-                        Long movieId = Long.parseLong(tokens[1]);
-                        String tagName = tokens[2].trim().toLowerCase();
-
-                        Account account = accountCache.get(userId);
-                        if (account == null) continue;
-
-                        Movie movie = movieCache.get(movieId);
-                        if (movie == null) continue;
-
-                        String tagKey = tagName + "::" + userId;
-                        Tag tag = tagMap.computeIfAbsent(tagKey, k -> {
-                            Tag t = new Tag();
-                            t.setName(tagName);
-                            t.setAccount(account);
-                            return t;
-                        });
+            // Indexation hors transaction : le BulkIngester regroupe les documents et gère les réessais
+            if (bulk != null) {
+                for (Movie movie : movies) {
+                    MovieElastic movieElastic = MovieMapper.toElastic(movie);
+                    bulk.indexMovie(movieElastic);
+                }
+            }
+            return movies.size();
+        }
 
-                        if (tag.getMovies() == null) tag.setMovies(new ArrayList<>());
-                        if (!tag.getMovies().contains(movie)) {
-                            tag.getMovies().add(movie);
-                        }
 
-                        if (movie.getTags() == null) movie.setTags(new ArrayList<>());
-                        if (!movie.getTags().contains(tag)) {
-                            movie.getTags().add(tag);
-                        }
+        /**
+         * Import d'une archive MovieLens en une seule lecture du flux : chaque entrée est confiée à son importeur
+         * dès qu'elle se présente, sans extraction. Dans ces archives links.csv précède movies.csv : les liens
+         * sont gardés en mémoire et appliqués en fin d'archive. Les notes doivent précéder les tags, dont
+         * les comptes sont créés par l'import des notes.
+         */
+        public void importArchive(InputStream inputStream, String sourceName, ImportProgress importProgress) throws IOException {
+            MovieLinks links = null;
+            try (CsvArchive archive = new CsvArchive(inputStream)) {
+                String entry;
+                while ((entry = archive.nextEntry()) != null) {
+                    // Chaque entrée a ses propres points de reprise : ml-latest.zip!ratings.csv
+                    String entrySource = sourceName != null ? sourceName + "!" + entry : null;
+                    switch (entry) {
+                        case "movies.csv", "movies_created.csv" ->
+                                importMoviesFromCsv(archive.entryStream(), entrySource, importProgress);
+                        case "ratings.csv" -> importRatingsFromCsv(archive.entryStream(), entrySource, importProgress);
+                        case "tags.csv" -> importTagsFromCsv(archive.entryStream(), entrySource, importProgress);
+                        case "links.csv" -> links = readLinks(archive.entryStream(), importProgress);
+                        default -> logger.infof("Entrée d'archive ignorée : %s", entry);
                     }
                 }
             }
-
-            // Découpage en batchs et persistance
-            List<Tag> allTags = new ArrayList<>(tagMap.values());
-            for (int i = 0; i < allTags.size(); i += batchSize) {
-                //logger.info("Traitement du batch de tags de " + i + " à " + Math.min(i + batchSize, allTags.size()));
-                List<Tag> subList = allTags.subList(i, Math.min(i + batchSize, allTags.size()));
-                persistBatchTag(subList);
+            if (links != null) {
+                persistLinks(links);
             }
-
-            System.out.println("Import terminé depuis : " + inputStream.toString());
         }
 
+        /**
+         * Identifiants externes des films (links.csv : movieId,imdbId,tmdbId), lus en colonnes primitives
+         * puis appliqués en une transaction. La mise à jour est idempotente : aucun point de reprise n'est tenu.
+         */
+        public void importLinksFromCsv(InputStream inputStream, ImportProgress importProgress) throws IOException {
+            persistLinks(readLinks(inputStream, importProgress));
+        }
 
-        private void persistBatchTag(List<Tag> tags) {
-            EntityManager em = entityManagerFactory.createEntityManager();
-            EntityTransaction tx = em.getTransaction();
+        private MovieLinks readLinks(InputStream inputStream, ImportProgress importProgress) throws IOException {
+            MovieLinks links = new MovieLinks();
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), 10000)) {
+                importExecutor.pipeline("links").writers(1).run(source, (rows, progress) -> {
+                    MovieLinks batch = new MovieLinks();
+                    for (String[] tokens : rows) {
+                        if (tokens.length < 2 || tokens[1].isBlank()) {
+                            progress.reject();
+                            continue;
+                        }
+                        long tmdbId = tokens.length > 2 && !tokens[2].isBlank() ? Long.parseLong(tokens[2].trim()) : 0;
+                        batch.add(Long.parseLong(tokens[0].trim()), Long.parseLong(tokens[1].trim()), tmdbId);
+                    }
+                    return batch;
+                }, chunk -> {
+                    links.addAll(chunk.payload());
+                    return chunk.payload().size();
+                }, importProgress);
+            }
+            return links;
+        }
 
+        private void persistLinks(MovieLinks links) {
             try {
-                tx.begin();
+                long updated = movieLinkRepository.update(links);
+                logger.infof("Identifiants externes renseignés pour %d films (%d liens lus)", updated, links.size());
+            } catch (SQLException e) {
+                throw new ImportException("Échec de la mise à jour des identifiants externes", e);
+            }
+        }
 
-                for (int i = 0; i < tags.size(); i++) {
-                    Tag tag = tags.get(i);
+        public void importTagsFromCsv(InputStream inputStream) throws IOException {
+            importTagsFromCsv(inputStream, null);
+        }
 
-                    // Rendre les objets gérés
-                    Account managedAccount = em.merge(tag.getAccount());
-                    List<Movie> managedMovies = tag.getMovies().stream()
-                            .map(em::merge)
-                            .toList();
+        public void importTagsFromCsv(InputStream inputStream, String sourceName) throws IOException {
+            importTagsFromCsv(inputStream, sourceName, new ImportProgress());
+        }
+
+        public void importTagsFromCsv(InputStream inputStream, String sourceName, ImportProgress importProgress) throws IOException {
+            final int batchSize = 5000;
+            ImportResume resume = resume(sourceName);
+            ImportBatch importBatch;
+
+            // Seule l'existence des comptes et films est vérifiée, sur leurs identifiants : aucune entité n'est chargée
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
+
+            // Vocabulaire et liens tag-film dédoublonnés, alimentés par un unique écrivain
+            TagGraph graph = new TagGraph();
+
+            try (CsvChunkSource source = new CsvChunkSource(inputStream, new CSVParserBuilder().build(), batchSize, resume)) {
+                importExecutor.pipeline("tags").writers(1).run(source, (rows, progress) -> {
+                    List<TagRow> tagRows = new ArrayList<>(rows.size());
+                    for (String[] tokens : rows) {
+                        if (tokens.length < 3) {
+                            progress.reject();
+                            continue;
+                        }
+                        long accountId = Long.parseLong(tokens[0]);
+                        long movieId = Long.parseLong(tokens[1]);
+                        if (!accountIds.contains(accountId) || !movieIds.contains(movieId)) {
+                            progress.reject();
+                            continue;
+                        }
+                        tagRows.add(new TagRow(accountId, movieId, tokens[2].trim().toLowerCase()));
+                    }
+                    return tagRows;
+                }, collectTags(graph), importProgress);
+                importBatch = tagsImportBatch(sourceName, resume, source.position());
+            }
 
-                    tag.setAccount(managedAccount);
-                    tag.setMovies(managedMovies);
+            persistTags(graph, importBatch);
+            completeCheckpoint(sourceName);
 
-                    Tag managedTag = em.merge(tag); // merge obligatoire
+            logger.infof("Import des tags terminé (%s) : %s",
+                    sourceName != null ? sourceName : "flux", importProgress);
+        }
 
-                    // Mise à jour des films pour refléter la relation
-                    for (Movie m : managedMovies) {
-                        if (m.getTags() == null) {
-                            m.setTags(new ArrayList<>());
-                        }
-                        if (!m.getTags().contains(managedTag)) {
-                            m.getTags().add(managedTag);
-                            em.merge(m);
+        /**
+         * Variante d'import des tags sur un fichier local projeté en mémoire : les identifiants sont décodés
+         * depuis les octets, seul le libellé du tag devient une String. Les plages étant coupées sur les fins
+         * de ligne, un tag entre guillemets contenant un retour à la ligne est rejeté.
+         */
+        public void importTagsFromFile(Path path, String sourceName, ImportProgress importProgress) throws IOException {
+            ImportResume resume = resume(sourceName);
+            ImportBatch importBatch;
+
+            LongHashSet accountIds = toLongHashSet(accountService.findAllIds());
+            LongHashSet movieIds = toLongHashSet(movieService.findAllIds());
+            TagGraph graph = new TagGraph();
+
+            try (MappedCsvSource source = new MappedCsvSource(path, mappedChunkBytes, resume)) {
+                importProgress.setBytesTotal(source.size());
+                importExecutor.pipeline("tags-mapped").writers(1).run(source, (block, progress) -> {
+                    List<TagRow> tagRows = new ArrayList<>(block.lines());
+                    NumericLineReader line = new NumericLineReader(block.bytes());
+                    while (line.hasNext()) {
+                        long accountId = line.nextLong();
+                        long movieId = line.nextLong();
+                        String name = line.nextText();
+                        if (!line.endLine() || !accountIds.contains(accountId) || !movieIds.contains(movieId)) {
+                            progress.reject();
+                            continue;
                         }
+                        tagRows.add(new TagRow(accountId, movieId, name.trim().toLowerCase()));
                     }
+                    return tagRows;
+                }, collectTags(graph), importProgress);
+                importBatch = tagsImportBatch(sourceName, resume, source.position());
+            }
 
-                    if (i % 1000 == 0) {
-                        em.flush();
-                        em.clear();
+            persistTags(graph, importBatch);
+            completeCheckpoint(sourceName);
+        }
+
+        // Écrivain unique : un tag par couple "libellé / compte", un lien par couple tag / film
+        private ChunkWriter<List<TagRow>> collectTags(TagGraph graph) {
+            return chunk -> {
+                long added = 0;
+                for (TagRow row : chunk.payload()) {
+                    if (graph.add(row.accountId(), row.movieId(), row.name())) {
+                        added++;
                     }
                 }
+                return added;
+            };
+        }
 
-                em.flush();
-                em.clear();
-                tx.commit();
+        // Les tags sont agrégés sur tout le fichier : un seul lot couvre la plage lue
+        private ImportBatch tagsImportBatch(String sourceName, ImportResume resume, SourcePosition end) {
+            if (checkpointing(sourceName) && end.byteOffset() > resume.position().byteOffset()) {
+                return ImportBatch.of(sourceName, resume.position(), end);
+            }
+            return null;
+        }
 
-            } catch (Exception e) {
-                if (tx.isActive()) tx.rollback();
-                e.printStackTrace();
-            } finally {
-                em.close();
+        // Ligne de tag validée, agrégée ensuite par l'écrivain du pipeline
+        private record TagRow(long accountId, long movieId, String name) {
+        }
+
+        // Tags et liens en une transaction COPY, pour que la reprise reste exacte
+        private void persistTags(TagGraph graph, ImportBatch importBatch) {
+            try {
+                long links = tagBulkRepository.copy(graph, importBatch);
+                logger.infof("%d tags lus (existants réutilisés), %d liens tag-film insérés", graph.tagCount(), links);
+            } catch (SQLException e) {
+                throw new ImportException("Échec de l'insertion des tags", e);
             }
         }
 
@@ -0,0 +1,190 @@
+package fr.univtln.pegliasco.tp.services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import fr.univtln.pegliasco.tp.model.nosql.Elastic.GenderElastic;
+import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexation en masse dans Elasticsearch via l'API {@code _bulk} et le {@link BulkIngester} du client.
+ * Les documents sont regroupés par lots (taille et intervalle de flush configurables), plusieurs lots
+ * peuvent être en vol simultanément, et chaque élément en échec est réessayé ou compté individuellement.
+ */
+@ApplicationScoped
+public class ElasticBulkService {
+    private static final Logger logger = Logger.getLogger(ElasticBulkService.class.getName());
+
+    private static final String MOVIE_INDEX = "movies";
+    private static final String GENDER_INDEX = "genders";
+
+    @Inject
+    ElasticsearchClient client;
+
+    @Inject
+    @ConfigProperty(name = "elasticsearch.bulk.max-operations", defaultValue = "1000")
+    int maxOperations;
+
+    @Inject
+    @ConfigProperty(name = "elasticsearch.bulk.flush-interval-ms", defaultValue = "1000")
+    long flushIntervalMs;
+
+    @Inject
+    @ConfigProperty(name = "elasticsearch.bulk.max-concurrent-requests", defaultValue = "4")
+    int maxConcurrentRequests;
+
+    @Inject
+    @ConfigProperty(name = "elasticsearch.bulk.max-retries", defaultValue = "3")
+    int maxRetries;
+
+    // Les nouvelles tentatives sont réinjectées depuis ce thread, jamais depuis les callbacks du BulkIngester
+    private ScheduledExecutorService retryScheduler;
+
+    @PostConstruct
+    void init() {
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "elastic-bulk-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    // Ouvre une session d'indexation ; la fermer attend que tous les documents soient acquittés
+    public BulkSession openSession(String name) {
+        return new BulkSession(name);
+    }
+
+    private record BulkItem(String index, String id, Object document, int attempt) {
+        BulkOperation toOperation() {
+            return BulkOperation.of(b -> b.index(i -> i.index(index).id(id).document(document)));
+        }
+    }
+
+    public class BulkSession implements AutoCloseable {
+        private final String name;
+        private final BulkIngester<BulkItem> ingester;
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        // Documents ajoutés mais pas encore acquittés (succès ou échec définitif)
+        private final AtomicLong pending = new AtomicLong();
+
+        private BulkSession(String name) {
+            this.name = name;
+            this.ingester = BulkIngester.<BulkItem>of(b -> b
+                    .client(client)
+                    .maxOperations(maxOperations)
+                    .flushInterval(flushIntervalMs, TimeUnit.MILLISECONDS)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .listener(new Listener()));
+        }
+
+        public void indexMovie(MovieElastic movieElastic) {
+            add(new BulkItem(MOVIE_INDEX, String.valueOf(movieElastic.getId()), movieElastic, 0));
+        }
+
+        public void indexGender(GenderElastic genderElastic) {
+            add(new BulkItem(GENDER_INDEX, String.valueOf(genderElastic.getId()), genderElastic, 0));
+        }
+
+        public long getIndexed() {
+            return indexed.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        private void add(BulkItem item) {
+            pending.incrementAndGet();
+            ingester.add(item.toOperation(), item);
+        }
+
+        // Appelé depuis un callback : l'élément reste compté dans pending jusqu'à sa réinjection
+        private void retryOrFail(BulkItem item, String reason) {
+            if (item.attempt() < maxRetries) {
+                retried.incrementAndGet();
+                long delay = 500L << item.attempt();
+                BulkItem next = new BulkItem(item.index(), item.id(), item.document(), item.attempt() + 1);
+                retryScheduler.schedule(() -> ingester.add(next.toOperation(), next), delay, TimeUnit.MILLISECONDS);
+            } else {
+                failed.incrementAndGet();
+                pending.decrementAndGet();
+                logger.warnf("Indexation abandonnée pour %s/%s après %d tentatives : %s",
+                        item.index(), item.id(), item.attempt() + 1, reason);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                while (pending.get() > 0) {
+                    ingester.flush();
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ingester.close();
+            }
+            logger.infof("Indexation bulk %s : %d documents indexés, %d réessais, %d échecs",
+                    name, indexed.get(), retried.get(), failed.get());
+        }
+
+        private class Listener implements BulkListener<BulkItem> {
+
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request, List<BulkItem> contexts) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, List<BulkItem> contexts, BulkResponse response) {
+                List<BulkResponseItem> items = response.items();
+                for (int i = 0; i < contexts.size(); i++) {
+                    BulkItem item = contexts.get(i);
+                    BulkResponseItem result = items.get(i);
+                    if (result.error() == null) {
+                        indexed.incrementAndGet();
+                        pending.decrementAndGet();
+                    } else if (result.status() == 429 || result.status() >= 500) {
+                        retryOrFail(item, result.error().reason());
+                    } else {
+                        // Erreur de document (mapping, etc.) : inutile de réessayer
+                        failed.incrementAndGet();
+                        pending.decrementAndGet();
+                        logger.warnf("Document rejeté %s/%s : %s", item.index(), item.id(), result.error().reason());
+                    }
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, List<BulkItem> contexts, Throwable failure) {
+                logger.warnf("Requête bulk %d en échec (%d documents) : %s", executionId, contexts.size(), failure.getMessage());
+                for (BulkItem item : contexts) {
+                    retryOrFail(item, failure.getMessage());
+                }
+            }
+        }
+    }
+}
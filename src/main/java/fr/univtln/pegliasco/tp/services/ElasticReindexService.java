@@ -0,0 +1,157 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.importer.ImportProgress;
+import fr.univtln.pegliasco.tp.model.Gender;
+import fr.univtln.pegliasco.tp.model.Movie;
+import fr.univtln.pegliasco.tp.model.Tag;
+import fr.univtln.pegliasco.tp.model.nosql.Mapper.GenderMapper;
+import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reconstruit les index Elasticsearch (films et genres) à partir de la base, par l'API bulk.
+ * Utilisé après la restauration d'un instantané, quand les données n'ont pas transité par l'import CSV.
+ * <p>
+ * Les entités {@link Movie} ne sont pas chargées : leurs notes, tags et genres sont EAGER, et chaque note
+ * ramènerait son compte et ses notes. Chaque page lit les colonnes du film, puis acteurs, scénaristes, genres
+ * et tags par une requête chacun, et reconstitue un film détaché pour {@link MovieMapper#toElastic(Movie)}.
+ * Les genres sont lus de la même façon.
+ */
+@ApplicationScoped
+public class ElasticReindexService {
+    private static final Logger logger = Logger.getLogger(ElasticReindexService.class);
+
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+    @Inject
+    ElasticBulkService elasticBulkService;
+
+    @Inject
+    @ConfigProperty(name = "elasticsearch.reindex.page-size", defaultValue = "500")
+    int pageSize;
+
+    public void reindexAll() {
+        reindexAll(new ImportProgress());
+    }
+
+    // Les lignes écrites de progress sont les documents envoyés à Elasticsearch (films puis genres)
+    public void reindexAll(ImportProgress progress) {
+        progress.start();
+        long start = System.nanoTime();
+        long movies = 0;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try (ElasticBulkService.BulkSession bulk = elasticBulkService.openSession("reindex")) {
+            // Pagination par clé : pas de OFFSET, et le contexte est vidé entre deux pages
+            long lastId = Long.MIN_VALUE;
+            List<Object[]> page;
+            do {
+                page = entityManager.createQuery("SELECT m.id, m.title, m.year, m.runtime, m.director, "
+                                + "m.plot, m.country, m.poster, m.imdbId, m.tmdbId FROM Movie m "
+                                + "WHERE m.id > :lastId ORDER BY m.id", Object[].class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(pageSize)
+                        .getResultList();
+                if (page.isEmpty()) {
+                    break;
+                }
+                Map<Long, Movie> byId = new HashMap<>(page.size() * 2);
+                for (Object[] row : page) {
+                    Movie movie = detached(row);
+                    byId.put(movie.getId(), movie);
+                    lastId = movie.getId();
+                }
+                List<Long> ids = List.copyOf(byId.keySet());
+                collect(entityManager, "SELECT m.id, a FROM Movie m JOIN m.actors a WHERE m.id IN :ids", ids,
+                        (id, actor) -> byId.get(id).getActors().add((String) actor));
+                collect(entityManager, "SELECT m.id, w FROM Movie m JOIN m.writers w WHERE m.id IN :ids", ids,
+                        (id, writer) -> byId.get(id).getWriters().add((String) writer));
+                collect(entityManager, "SELECT m.id, g.name FROM Movie m JOIN m.genders g WHERE m.id IN :ids", ids,
+                        (id, name) -> byId.get(id).getGenders().add(named(new Gender(), (String) name)));
+                collect(entityManager, "SELECT m.id, t.name FROM Tag t JOIN t.movies m WHERE m.id IN :ids", ids,
+                        (id, name) -> byId.get(id).getTags().add(named(new Tag(), (String) name)));
+                for (Object[] row : page) {
+                    bulk.indexMovie(MovieMapper.toElastic(byId.get((Long) row[0])));
+                }
+                movies += page.size();
+                progress.addRead(page.size());
+                progress.addWritten(page.size());
+                entityManager.clear();
+            } while (page.size() == pageSize);
+
+            // Même principe pour les genres, dont la liste de films est elle aussi EAGER
+            Map<Long, Gender> genders = new HashMap<>();
+            for (Object[] row : entityManager.createQuery("SELECT g.id, g.name FROM Gender g", Object[].class)
+                    .getResultList()) {
+                Gender gender = named(new Gender(), (String) row[1]);
+                gender.setId((Long) row[0]);
+                gender.setMovies(new ArrayList<>());
+                genders.put(gender.getId(), gender);
+            }
+            for (Object[] row : entityManager.createQuery("SELECT g.id, m.id FROM Gender g JOIN g.movies m",
+                    Object[].class).getResultList()) {
+                Movie movie = new Movie();
+                movie.setId((Long) row[1]);
+                genders.get((Long) row[0]).getMovies().add(movie);
+            }
+            for (Gender gender : genders.values()) {
+                bulk.indexGender(GenderMapper.toElastic(gender));
+            }
+            progress.addRead(genders.size());
+            progress.addWritten(genders.size());
+        } finally {
+            entityManager.close();
+            progress.finish();
+        }
+        logger.infof("Réindexation Elasticsearch de %d films en %.2fs", movies, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Film non géré, rempli des colonnes de la page ; ses collections sont complétées ensuite
+    private static Movie detached(Object[] row) {
+        Movie movie = new Movie();
+        movie.setId((Long) row[0]);
+        movie.setTitle((String) row[1]);
+        movie.setYear((Date) row[2]);
+        movie.setRuntime((Integer) row[3]);
+        movie.setDirector((String) row[4]);
+        movie.setPlot((String) row[5]);
+        movie.setCountry((String) row[6]);
+        movie.setPoster((String) row[7]);
+        movie.setImdbId((Long) row[8]);
+        movie.setTmdbId((Long) row[9]);
+        movie.setActors(new ArrayList<>());
+        movie.setWriters(new ArrayList<>());
+        movie.setGenders(new ArrayList<>());
+        movie.setTags(new ArrayList<>());
+        return movie;
+    }
+
+    // Paires (identifiant du film, valeur) d'une requête sur les films de la page
+    private static void collect(EntityManager entityManager, String query, List<Long> ids,
+                                BiConsumer<Long, Object> consumer) {
+        for (Object[] row : entityManager.createQuery(query, Object[].class).setParameter("ids", ids).getResultList()) {
+            consumer.accept((Long) row[0], row[1]);
+        }
+    }
+
+    private static Gender named(Gender gender, String name) {
+        gender.setName(name);
+        return gender;
+    }
+
+    private static Tag named(Tag tag, String name) {
+        tag.setName(name);
+        return tag;
+    }
+}
@@ -0,0 +1,73 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.importer.ImportResume;
+import fr.univtln.pegliasco.tp.importer.SourcePosition;
+import fr.univtln.pegliasco.tp.model.ImportBatch;
+import fr.univtln.pegliasco.tp.model.ImportCheckpoint;
+import fr.univtln.pegliasco.tp.repository.ImportCheckpointRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import org.jboss.logging.Logger;
+
+import java.util.Date;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+@ApplicationScoped
+public class ImportCheckpointService {
+    private static final Logger logger = Logger.getLogger(ImportCheckpointService.class.getName());
+
+    private final ImportCheckpointRepository importCheckpointRepository;
+
+    public ImportCheckpointService(ImportCheckpointRepository importCheckpointRepository) {
+        this.importCheckpointRepository = importCheckpointRepository;
+    }
+
+    /**
+     * Regroupe les lots validés contigus dans le point de reprise de la source et renvoie de quoi
+     * reprendre l'import : la position contiguë atteinte et les lots isolés à sauter au-delà.
+     */
+    @Transactional
+    public ImportResume compact(String source) {
+        ImportCheckpoint checkpoint = importCheckpointRepository.findCheckpoint(source);
+        SourcePosition position = checkpoint != null ? checkpoint.toPosition() : SourcePosition.START;
+
+        NavigableMap<Long, SourcePosition> committed = new TreeMap<>();
+        for (ImportBatch batch : importCheckpointRepository.findBatches(source)) {
+            if (batch.getStartOffset() >= position.byteOffset()) {
+                committed.put(batch.getStartOffset(), batch.endPosition());
+            }
+        }
+
+        SourcePosition end;
+        long initialOffset = position.byteOffset();
+        while ((end = committed.remove(position.byteOffset())) != null) {
+            position = end;
+        }
+
+        if (position.byteOffset() != initialOffset) {
+            if (checkpoint == null) {
+                checkpoint = new ImportCheckpoint();
+                checkpoint.setSource(source);
+            }
+            checkpoint.setByteOffset(position.byteOffset());
+            checkpoint.setLineNumber(position.lineNumber());
+            checkpoint.setContentHash(position.contentHash());
+            checkpoint.setUpdatedAt(new Date());
+            importCheckpointRepository.saveCheckpoint(checkpoint);
+        }
+        importCheckpointRepository.deleteBatchesBefore(source, position.byteOffset());
+
+        if (position.byteOffset() > 0) {
+            logger.infof("Reprise de %s à l'octet %d (ligne %d), %d lot(s) déjà validé(s) au-delà",
+                    source, position.byteOffset(), position.lineNumber(), committed.size());
+        }
+        return new ImportResume(position, committed);
+    }
+
+    // Oublie la progression d'une source : le prochain import repartira du début
+    @Transactional
+    public void reset(String source) {
+        importCheckpointRepository.deleteAll(source);
+    }
+}
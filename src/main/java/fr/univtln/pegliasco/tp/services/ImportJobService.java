@@ -0,0 +1,101 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.importer.ImportExecutor;
+import fr.univtln.pegliasco.tp.importer.ImportJob;
+import fr.univtln.pegliasco.tp.importer.ImportTask;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lance les imports en tâche de fond sur l'exécuteur d'import et garde la trace des jobs récents.
+ */
+@ApplicationScoped
+public class ImportJobService {
+    private static final Logger logger = Logger.getLogger(ImportJobService.class);
+
+    @Inject
+    ImportExecutor importExecutor;
+
+    // Nombre de jobs terminés conservés pour la consultation
+    @Inject
+    @ConfigProperty(name = "import.jobs.history-size", defaultValue = "50")
+    int historySize;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    // Deux jobs sur la même source se disputeraient ses points de reprise : le second est refusé
+    public synchronized ImportJob submit(String type, String source, long bytesTotal, ImportTask task) {
+        ImportJob job = register(type, source, bytesTotal);
+        job.attach(importExecutor.submit(job, task));
+        logger.infof("Job d'import %s soumis (%s : %s)", job.getId(), type, source);
+        return job;
+    }
+
+    /**
+     * Exécute le job dans le thread appelant et rend la main une fois terminé. Sert aux envois HTTP :
+     * le corps de la requête n'est lisible que tant que celle-ci est en cours. Le job reste consultable
+     * et annulable via /import/jobs pendant l'exécution ; l'annulation ferme {@code input}.
+     */
+    public ImportJob run(String type, String source, long bytesTotal, Closeable input, ImportTask task) {
+        ImportJob job;
+        synchronized (this) {
+            job = register(type, source, bytesTotal);
+        }
+        job.closeOnCancel(input);
+        logger.infof("Job d'import %s démarré (%s : %s)", job.getId(), type, source);
+        importExecutor.runInCaller(job, task);
+        return job;
+    }
+
+    private ImportJob register(String type, String source, long bytesTotal) {
+        boolean busy = jobs.values().stream()
+                .anyMatch(job -> !job.getStatus().isFinished() && job.getSource().equals(source));
+        if (busy) {
+            throw new IllegalStateException("Un import de " + source + " est déjà en cours");
+        }
+        evictFinished();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, source, bytesTotal);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<ImportJob> findAll() {
+        List<ImportJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing(ImportJob::getSubmittedAt).reversed());
+        return all;
+    }
+
+    public boolean cancel(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        logger.infof("Annulation du job d'import %s demandée", id);
+        return true;
+    }
+
+    private void evictFinished() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(job -> job.getStatus().isFinished())
+                .sorted(Comparator.comparing(ImportJob::getFinishedAt, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+        for (int i = 0; i < finished.size() - historySize + 1; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+}
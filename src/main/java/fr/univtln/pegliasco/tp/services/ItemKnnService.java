@@ -0,0 +1,88 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+import fr.univtln.pegliasco.tp.recommendation.ItemKnnModel;
+import fr.univtln.pegliasco.tp.repository.RatingBulkRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Recommandation item-kNN dans le processus, sans appel à l'API distante.
+ * Le modèle est construit au premier appel puis à chaque {@link #rebuild()} ; entre deux constructions,
+ * les notes ajoutées ne sont pas prises en compte.
+ */
+@ApplicationScoped
+public class ItemKnnService implements LocalRecommender {
+    private static final Logger logger = Logger.getLogger(ItemKnnService.class);
+
+    @Inject
+    RatingBulkRepository ratingBulkRepository;
+
+    // Nombre de voisins conservés par film
+    @Inject
+    @ConfigProperty(name = "recommendation.knn.neighbours", defaultValue = "50")
+    int neighbours;
+
+    // Atténuation des similarités calculées sur peu d'utilisateurs communs
+    @Inject
+    @ConfigProperty(name = "recommendation.knn.shrinkage", defaultValue = "10")
+    float shrinkage;
+
+    private volatile ItemKnnModel model;
+
+    @Override
+    public void rebuild() {
+        build();
+    }
+
+    // Reconstruit le modèle ; les requêtes en cours continuent sur l'ancien jusqu'au remplacement
+    private synchronized ItemKnnModel build() {
+        long start = System.nanoTime();
+        RatingBatch ratings;
+        try {
+            ratings = ratingBulkRepository.readAll();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Lecture des notes impossible", e);
+        }
+        long loaded = System.nanoTime();
+        ItemKnnModel built = ItemKnnModel.train(ratings, neighbours, shrinkage);
+        logger.infof("Modèle item-kNN : %,d notes, %,d utilisateurs, %,d films, %,d voisins (lecture %d ms, calcul %d ms)",
+                ratings.size(), built.getUserCount(), built.getItemCount(), built.getNeighbourCount(),
+                (loaded - start) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000);
+        model = built;
+        return built;
+    }
+
+    @Override
+    public List<Long> recommend(long userId, int count) {
+        return model().recommend(userId, count);
+    }
+
+    @Override
+    public List<Long> similar(long movieId, int count) {
+        return model().similar(movieId, count);
+    }
+
+    @Override
+    public List<Long> popular(int count) {
+        return model().popular(count);
+    }
+
+    private ItemKnnModel model() {
+        ItemKnnModel current = model;
+        if (current == null) {
+            synchronized (this) {
+                current = model;
+                if (current == null) {
+                    current = build();
+                }
+            }
+        }
+        return current;
+    }
+}
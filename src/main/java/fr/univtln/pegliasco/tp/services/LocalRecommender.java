@@ -0,0 +1,21 @@
+package fr.univtln.pegliasco.tp.services;
+
+import java.util.List;
+
+/**
+ * Moteur de recommandation calculé dans le processus, choisi par {@code recommendation.engine}.
+ */
+public interface LocalRecommender {
+
+    // Reconstruit le modèle à partir des notes en base
+    void rebuild();
+
+    // Identifiants des films recommandés, du meilleur au moins bon
+    List<Long> recommend(long userId, int count);
+
+    // Films les plus proches d'un film donné, lui exclu
+    List<Long> similar(long movieId, int count);
+
+    // Classement pour un utilisateur sans historique
+    List<Long> popular(int count);
+}
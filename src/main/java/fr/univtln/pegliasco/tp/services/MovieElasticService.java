@@ -9,7 +9,10 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @ApplicationScoped
@@ -104,6 +107,15 @@ public class MovieElasticService {
                 .toList();
     }
 
+    // Variante indexée par identifiant : les absents de l'index n'ont pas d'entrée
+    public Map<Long, MovieElastic> getMoviesByIdsAsMap(Collection<Long> ids) throws IOException {
+        Map<Long, MovieElastic> movies = new HashMap<>(ids.size() * 2);
+        for (MovieElastic movie : getMoviesByIds(List.copyOf(ids))) {
+            movies.put(movie.getId(), movie);
+        }
+        return movies;
+    }
+
 
 }
 
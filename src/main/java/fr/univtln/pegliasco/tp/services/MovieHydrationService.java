@@ -0,0 +1,94 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.model.Movie;
+import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
+import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
+import fr.univtln.pegliasco.tp.recommendation.StageTimer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transforme des listes d'identifiants classées en films à sérialiser, dans l'ordre du classement.
+ * Par défaut un {@code mget} sur l'index Elasticsearch : un document par film, sans les notes, tags et genres
+ * que charge l'entité JPA. Les films absents de l'index, ou tous si Elasticsearch est indisponible,
+ * sont relus en base, de même que les documents indexés avant l'ajout de la date de sortie complète et des
+ * identifiants externes : la réponse est identique quelle que soit la source.
+ * La durée de l'étape est mesurée à part.
+ */
+@ApplicationScoped
+public class MovieHydrationService {
+    private static final Logger logger = Logger.getLogger(MovieHydrationService.class);
+
+    @Inject
+    MovieElasticService movieElasticService;
+
+    @Inject
+    MovieService movieService;
+
+    // "elastic" : mget sur l'index des films, "database" : entités JPA
+    @Inject
+    @ConfigProperty(name = "recommendation.hydration.source", defaultValue = "elastic")
+    String source;
+
+    private final StageTimer timer = new StageTimer("hydration");
+
+    // Films dans l'ordre des identifiants ; ceux qui n'existent plus sont ignorés
+    public List<Movie> hydrate(List<Long> rankedIds) {
+        Map<Long, Movie> movies = hydrateAll(rankedIds);
+        List<Movie> ordered = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                ordered.add(movie);
+            }
+        }
+        return ordered;
+    }
+
+    // Films indexés par identifiant, lus une seule fois même si un identifiant est répété
+    public Map<Long, Movie> hydrateAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        long start = System.nanoTime();
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, Movie> movies = new HashMap<>(distinct.size() * 2);
+        if ("elastic".equalsIgnoreCase(source)) {
+            try {
+                for (MovieElastic indexed : movieElasticService.getMoviesByIdsAsMap(distinct).values()) {
+                    if (isComplete(indexed)) {
+                        movies.put(indexed.getId(), MovieMapper.fromElastic(indexed));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warnf("mget Elasticsearch en échec, films relus en base : %s", e.toString());
+            }
+        }
+        if (movies.size() < distinct.size()) {
+            List<Long> missing = distinct.stream().filter(id -> !movies.containsKey(id)).toList();
+            movies.putAll(movieService.getMoviesByIdsAsMap(missing));
+        }
+        timer.record(System.nanoTime() - start);
+        return movies;
+    }
+
+    // Un document qui a une année mais pas de date complète date d'avant le champ released : à réindexer
+    private static boolean isComplete(MovieElastic movie) {
+        return movie.getYear() == 0 || movie.getReleased() != null;
+    }
+
+    public void snapshot(Map<String, Long> snapshot) {
+        timer.snapshot(snapshot);
+    }
+}
@@ -0,0 +1,74 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.model.view.MovieRatingStat;
+import fr.univtln.pegliasco.tp.model.view.RatingChange;
+import fr.univtln.pegliasco.tp.recommendation.MovieRatingStatsTable;
+import fr.univtln.pegliasco.tp.repository.RatingRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistiques de notes par film (effectif, somme, moyenne) tenues en mémoire.
+ * La table est calculée en une requête GROUP BY au premier accès, puis suivie note par note
+ * ({@link RatingChange}) ; un import massif l'invalide et elle est recalculée à l'accès suivant.
+ */
+@ApplicationScoped
+public class MovieRatingStatsService {
+    private static final Logger logger = Logger.getLogger(MovieRatingStatsService.class);
+    // Nombre de notes fictives à la moyenne globale ajoutées à chaque film pour le classement
+    private static final double TOP_RATED_PRIOR = 10;
+
+    @Inject
+    RatingRepository ratingRepository;
+
+    private volatile MovieRatingStatsTable table;
+
+    public MovieRatingStat get(Long movieId) {
+        return table().get(movieId);
+    }
+
+    // Recherche groupée : une entrée par identifiant demandé
+    public Map<Long, MovieRatingStat> getAll(Collection<Long> movieIds) {
+        return table().getAll(movieIds);
+    }
+
+    // Classement local des films, utilisable sans l'API de recommandation
+    public List<Long> topRated(int count) {
+        return table().topRated(count, TOP_RATED_PRIOR);
+    }
+
+    public void invalidate() {
+        table = null;
+    }
+
+    void onRatingChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) RatingChange change) {
+        MovieRatingStatsTable current = table;
+        if (current != null && change.movieId() != null) {
+            current.apply(change.movieId(), change.countDelta(), change.sumDelta());
+        }
+    }
+
+    private MovieRatingStatsTable table() {
+        MovieRatingStatsTable current = table;
+        if (current == null) {
+            synchronized (this) {
+                current = table;
+                if (current == null) {
+                    long start = System.nanoTime();
+                    current = new MovieRatingStatsTable(ratingRepository.findMovieRatingStats());
+                    logger.infof("Statistiques de notes chargées pour %,d films en %d ms",
+                            current.size(), (System.nanoTime() - start) / 1_000_000);
+                    table = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -4,11 +4,13 @@ import fr.univtln.pegliasco.tp.model.Gender;
 import fr.univtln.pegliasco.tp.model.Movie;
 import fr.univtln.pegliasco.tp.model.Rating;
 import fr.univtln.pegliasco.tp.model.Tag;
+import fr.univtln.pegliasco.tp.model.view.MovieAdded;
 import fr.univtln.pegliasco.tp.model.nosql.Elastic.MovieElastic;
 import fr.univtln.pegliasco.tp.model.nosql.Mapper.MovieMapper;
 import fr.univtln.pegliasco.tp.repository.GenderRepository;
 import fr.univtln.pegliasco.tp.repository.MovieRepository;
 import fr.univtln.pegliasco.tp.repository.TagRepository;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -17,11 +19,18 @@ import org.jboss.logging.Logger;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @ApplicationScoped
 public class MovieService {
+    // Nombre maximal d'identifiants par clause IN (PostgreSQL limite une requête à 32767 paramètres)
+    private static final int ID_LOOKUP_SLICE = 10000;
+
     private final MovieRepository movieRepository;
 
     @Inject
@@ -32,6 +41,10 @@ public class MovieService {
     @Inject
     GenderRepository genderRepository;
 
+    // Insertion dans l'index des vecteurs de films, après le commit
+    @Inject
+    Event<MovieAdded> movieAdded;
+
 
 
     public MovieService(MovieRepository movieRepository) {
@@ -131,6 +144,15 @@ public class MovieService {
         return movieRepository.findById(id);
     }
 
+    // Résolution des identifiants transmis par les partenaires (IMDb, TMDB)
+    public Movie getMovieByImdbId(long imdbId) {
+        return movieRepository.findByImdbId(imdbId);
+    }
+
+    public Movie getMovieByTmdbId(long tmdbId) {
+        return movieRepository.findByTmdbId(tmdbId);
+    }
+
     // getMoviesPaginated
     public List<Movie> getMoviesPaginated(int page, int size) {
         List<Movie> movies = movieRepository.findPaginated(page, size);
@@ -152,6 +174,19 @@ public class MovieService {
         return movieRepository.findByIds(ids);
     }
 
+    // Films indexés par identifiant, en une requête par tranche d'identifiants distincts
+    public Map<Long, Movie> getMoviesByIdsAsMap(Collection<Long> ids) {
+        List<Long> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        Map<Long, Movie> movies = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += ID_LOOKUP_SLICE) {
+            List<Long> slice = distinct.subList(from, Math.min(from + ID_LOOKUP_SLICE, distinct.size()));
+            for (Movie movie : movieRepository.findByIds(slice)) {
+                movies.put(movie.getId(), movie);
+            }
+        }
+        return movies;
+    }
+
     @Transactional
     public void addMovie(Movie movie) {
         movieRepository.save(movie);
@@ -161,6 +196,10 @@ public class MovieService {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        List<Long> genreIds = movie.getGenders() == null
+                ? List.of()
+                : movie.getGenders().stream().map(Gender::getId).filter(Objects::nonNull).toList();
+        movieAdded.fire(new MovieAdded(movie.getId(), genreIds));
     }
 
     @Transactional
@@ -253,6 +292,11 @@ public class MovieService {
         return movie;
     }
 
+    //findAllIds
+    public List<Long> findAllIds() {
+        return movieRepository.findAllIds();
+    }
+
     // findAllAsMap
     public Map<Long, Movie> findAllAsMap() {
         return movieRepository.findAllAsMap();
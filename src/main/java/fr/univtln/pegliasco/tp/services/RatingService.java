@@ -1,10 +1,13 @@
 package fr.univtln.pegliasco.tp.services;
 
 import fr.univtln.pegliasco.tp.model.*;
+import fr.univtln.pegliasco.tp.model.view.RatingChange;
 import fr.univtln.pegliasco.tp.model.view.RatingId;
 import fr.univtln.pegliasco.tp.repository.AccountRepository;
 import fr.univtln.pegliasco.tp.repository.MovieRepository;
+import fr.univtln.pegliasco.tp.repository.RatingCacheRepository;
 import fr.univtln.pegliasco.tp.repository.RatingRepository;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -22,12 +25,18 @@ public class RatingService {
     private final RatingRepository ratingRepository;
     private final AccountRepository accountRepository;
     private final MovieRepository movieRepository;
+    private final RatingCacheRepository ratingCacheRepository;
+    // Suivi des statistiques par film : les observateurs ne sont notifiés qu'après le commit
+    private final Event<RatingChange> ratingChanges;
 
     @Inject
-    public RatingService(RatingRepository ratingRepository, AccountRepository accountRepository, MovieRepository movieRepository) {
+    public RatingService(RatingRepository ratingRepository, AccountRepository accountRepository, MovieRepository movieRepository,
+                         RatingCacheRepository ratingCacheRepository, Event<RatingChange> ratingChanges) {
         this.ratingRepository = ratingRepository;
         this.accountRepository =  accountRepository;
         this.movieRepository = movieRepository;
+        this.ratingCacheRepository = ratingCacheRepository;
+        this.ratingChanges = ratingChanges;
     }
 
     public static File generateCSV(List<RatingId> ratings) throws IOException {
@@ -61,6 +70,15 @@ public class RatingService {
     @Transactional
     public void addRating(Rating rating) {
         ratingRepository.add(rating);
+        fireAdded(rating);
+    }
+
+    // Note et son entrée de cache dans une même transaction : les deux INSERT partent ensemble au commit
+    @Transactional
+    public void addRatingWithCache(Rating rating, RatingCache ratingCache) {
+        ratingRepository.add(rating);
+        ratingCacheRepository.add(ratingCache);
+        fireAdded(rating);
     }
 
 
@@ -69,7 +87,11 @@ public class RatingService {
 
     @Transactional
     public void deleteRating(Long id) {
-        ratingRepository.delete(id);
+        Rating rating = ratingRepository.findById(id);
+        if (rating != null) {
+            ratingRepository.delete(rating);
+            fireRemoved(rating);
+        }
     }
 
     @Transactional
@@ -82,8 +104,13 @@ public class RatingService {
     public void updateRating(Long id, Rating rating) {
         Rating existingRating = ratingRepository.findById(id);
         if (existingRating != null) {
+            Float oldRate = existingRating.getRate();
             existingRating.setRate(rating.getRate());
             ratingRepository.update(existingRating);
+            if (existingRating.getMovie() != null && oldRate != null && rating.getRate() != null) {
+                ratingChanges.fire(RatingChange.updated(accountId(existingRating), existingRating.getMovie().getId(),
+                        oldRate, rating.getRate()));
+            }
         }
     }
 
@@ -121,6 +148,23 @@ public class RatingService {
             LOGGER.info("Suppression du rating id=" + rating.getId());
             account.getRatings().remove(rating);
             //ratingRepository.delete(rating);
+            fireRemoved(rating);
         }
     }
+
+    private void fireAdded(Rating rating) {
+        if (rating.getMovie() != null && rating.getRate() != null) {
+            ratingChanges.fire(RatingChange.added(accountId(rating), rating.getMovie().getId(), rating.getRate()));
+        }
+    }
+
+    private void fireRemoved(Rating rating) {
+        if (rating.getMovie() != null && rating.getRate() != null) {
+            ratingChanges.fire(RatingChange.removed(accountId(rating), rating.getMovie().getId(), rating.getRate()));
+        }
+    }
+
+    private static Long accountId(Rating rating) {
+        return rating.getAccount() == null ? null : rating.getAccount().getId();
+    }
 }
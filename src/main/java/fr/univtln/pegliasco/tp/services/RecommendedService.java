@@ -1,37 +1,356 @@
 package fr.univtln.pegliasco.tp.services;
 
+import fr.univtln.pegliasco.encryption.differential_privacy.ExponentialMechanism;
 import fr.univtln.pegliasco.tp.Interface.RecommendedInterface;
 import fr.univtln.pegliasco.tp.model.Movie;
+import fr.univtln.pegliasco.tp.model.view.MovieRatingStat;
+import fr.univtln.pegliasco.tp.model.view.RatingChange;
+import fr.univtln.pegliasco.tp.model.view.UserRecommendations;
+import fr.univtln.pegliasco.tp.recommendation.RecommendationCache;
+import fr.univtln.pegliasco.tp.recommendation.RecommendationOutcomes;
+import fr.univtln.pegliasco.tp.recommendation.RecommendationOutcomes.Outcome;
+import fr.univtln.pegliasco.tp.repository.RatingRepository;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @ApplicationScoped
 public class RecommendedService {
+    private static final Logger logger = Logger.getLogger(RecommendedService.class);
 
     @RestClient
     RecommendedInterface recommendedInterface;
 
     @Inject
-    MovieService movieService;
+    RemoteRecommendationService remoteRecommendationService;
+
+    @Inject
+    ItemKnnService itemKnnService;
+
+    @Inject
+    AlsService alsService;
+
+    @Inject
+    MovieHydrationService movieHydrationService;
+
+    @Inject
+    MovieRatingStatsService movieRatingStatsService;
+
+    @Inject
+    RatingRepository ratingRepository;
+
+    // "remote" : API de recommandation externe, "knn" : item-kNN, "als" : factorisation ALS, calculés dans le processus
+    @Inject
+    @ConfigProperty(name = "recommendation.engine", defaultValue = "remote")
+    String engine;
+
+    // Cache des listes classées par utilisateur : 0 entrée le désactive
+    @Inject
+    @ConfigProperty(name = "recommendation.cache.max-entries", defaultValue = "10000")
+    int cacheMaxEntries;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.cache.ttl-seconds", defaultValue = "300")
+    long cacheTtlSeconds;
+
+    // Profondeur minimale demandée au moteur, pour servir les demandes suivantes par préfixe
+    @Inject
+    @ConfigProperty(name = "recommendation.cache.depth", defaultValue = "100")
+    int cacheDepth;
+
+    // Recommandations groupées : utilisateurs traités par tranche, et appels au moteur simultanés par tranche
+    @Inject
+    @ConfigProperty(name = "recommendation.batch.chunk-size", defaultValue = "256")
+    int batchChunkSize;
+
+    @Inject
+    @ConfigProperty(name = "recommendation.batch.parallelism", defaultValue = "16")
+    int batchParallelism;
+
+    private RecommendationCache cache;
+    private final RecommendationOutcomes outcomes = new RecommendationOutcomes();
+
+    @PostConstruct
+    void createCache() {
+        cache = new RecommendationCache(cacheMaxEntries, TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    private boolean inProcess() {
+        return !"remote".equalsIgnoreCase(engine);
+    }
+
+    private LocalRecommender local() {
+        return "als".equalsIgnoreCase(engine) ? alsService : itemKnnService;
+    }
 
     public void init() {
-        recommendedInterface.initRecommender();
+        if (inProcess()) {
+            local().rebuild();
+        } else {
+            recommendedInterface.initRecommender();
+        }
+        cache.invalidateAll();
     }
 
     public List<Movie> fetchRecommendations(Long userId, int count) {
-        List<Long> movieIds = recommendedInterface.getRecommendations(userId, count);
-        return movieService.getMoviesByIds(movieIds);
+        List<Long> movieIds = cache.get(userId, count);
+        if (movieIds == null) {
+            long version = cache.version();
+            int depth = depth(count);
+            List<Long> ranked = inProcess()
+                    ? local().recommend(userId, depth)
+                    : recommendedInterface.getRecommendations(userId, depth);
+            cache.put(userId, ranked, depth, version);
+            movieIds = prefix(ranked, count);
+        }
+        return movieHydrationService.hydrate(movieIds);
     }
 
     public List<Movie> fetchColdRecommendations(int count) {
-        List<Long> movieIds = recommendedInterface.getColdRecommendations(count);
-        return movieService.getMoviesByIds(movieIds);
+        List<Long> movieIds = inProcess()
+                ? local().popular(count)
+                : recommendedInterface.getColdRecommendations(count);
+        return movieHydrationService.hydrate(movieIds);
+    }
+
+    /**
+     * Recommandations d'un utilisateur sans bloquer de thread pendant l'appel distant : liste personnalisée
+     * s'il a déjà noté, sinon sélection de démarrage à froid. Si l'API distante dépasse son délai, est saturée
+     * ou a ouvert son disjoncteur, la sélection à froid est calculée localement à partir des statistiques de notes.
+     * Les accès base passent par le pool de workers.
+     */
+    public Uni<List<Movie>> recommend(Long userId, int count) {
+        return blocking(() -> ratingRepository.hasNumberOfRatingsAboveLimit(userId, 0))
+                .chain(hasRatings -> hasRatings ? personalised(userId, count) : cold(count));
+    }
+
+    /**
+     * Recommandations de nombreux utilisateurs, émises au fil de l'eau par tranches de {@code batchChunkSize}.
+     * Par tranche : une requête pour savoir qui a déjà noté, les appels au moteur menés à
+     * {@code batchParallelism} en parallèle, une seule liste de candidats à froid partagée, et une seule
+     * lecture des films de tous les résultats. Les identifiants en double ne sont traités qu'une fois.
+     */
+    public Multi<UserRecommendations> recommendBatch(Collection<Long> userIds, int count) {
+        List<Long> distinct = List.copyOf(new LinkedHashSet<>(userIds));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchChunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + batchChunkSize, distinct.size())));
+        }
+        return Multi.createFrom().iterable(chunks)
+                .onItem().transformToUniAndConcatenate(chunk -> recommendChunk(chunk, count))
+                .onItem().transformToIterable(Function.identity());
+    }
+
+    /**
+     * Films proches d'un film donné, calculés par le moteur local : voisins item-kNN, ou recherche HNSW
+     * dans les facteurs ALS. Avec le moteur distant, qui n'expose pas ce service, le modèle item-kNN est utilisé.
+     */
+    public Uni<List<Movie>> similar(Long movieId, int count) {
+        return blocking(() -> movieHydrationService.hydrate(local().similar(movieId, count)));
+    }
+
+    // Note ajoutée, modifiée ou supprimée, quelle que soit la route : la liste en cache de l'utilisateur expire
+    void onRatingChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) RatingChange change) {
+        if (change.accountId() != null) {
+            cache.invalidate(change.accountId());
+        }
+    }
+
+    public RecommendationCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    // Issues des requêtes, causes d'échec distantes et durées de l'hydratation des films
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> snapshot = outcomes.snapshot();
+        movieHydrationService.snapshot(snapshot);
+        return snapshot;
+    }
+
+    private Uni<List<Movie>> personalised(Long userId, int count) {
+        List<Long> cached = cache.get(userId, count);
+        if (cached != null) {
+            outcomes.record(Outcome.CACHE);
+            return blocking(() -> movieHydrationService.hydrate(cached));
+        }
+        long version = cache.version();
+        int depth = depth(count);
+        if (inProcess()) {
+            return blocking(() -> {
+                List<Long> ranked = local().recommend(userId, depth);
+                cache.put(userId, ranked, depth, version);
+                outcomes.record(Outcome.LOCAL);
+                return movieHydrationService.hydrate(prefix(ranked, count));
+            });
+        }
+        return remoteRecommendationService.recommendations(userId, depth)
+                .onItemOrFailure().transformToUni((ranked, failure) -> {
+                    if (failure != null) {
+                        return fallback(failure, count);
+                    }
+                    cache.put(userId, ranked, depth, version);
+                    outcomes.record(Outcome.REMOTE);
+                    return blocking(() -> movieHydrationService.hydrate(prefix(ranked, count)));
+                });
+    }
+
+    private Uni<List<UserRecommendations>> recommendChunk(List<Long> userIds, int count) {
+        int depth = depth(count);
+        return blocking(() -> new HashSet<>(ratingRepository.findRatedAccountIds(userIds)))
+                .chain(rated -> Multi.createFrom().iterable(userIds)
+                        .onItem().transformToUni(userId -> rated.contains(userId)
+                                ? rankedIds(userId, count, depth)
+                                : Uni.createFrom().item(new Ranked(userId, Outcome.COLD, null)))
+                        .merge(batchParallelism)
+                        .collect().asList())
+                .chain(ranked -> {
+                    boolean needsCold = ranked.stream().anyMatch(r -> r.outcome() == Outcome.COLD);
+                    Uni<List<Long>> coldCandidates = needsCold ? coldCandidates(2 * count) : Uni.createFrom().item(List.of());
+                    return coldCandidates.chain(cold -> blocking(() -> hydrate(ranked, cold, count)));
+                });
+    }
+
+    // Liste classée d'un utilisateur qui a déjà noté ; en cas d'échec distant, ids est null et l'issue FALLBACK
+    private Uni<Ranked> rankedIds(Long userId, int count, int depth) {
+        List<Long> cached = cache.get(userId, count);
+        if (cached != null) {
+            return Uni.createFrom().item(new Ranked(userId, Outcome.CACHE, cached));
+        }
+        long version = cache.version();
+        Uni<List<Long>> ranked = inProcess()
+                ? blocking(() -> local().recommend(userId, depth))
+                : remoteRecommendationService.recommendations(userId, depth);
+        return ranked.onItemOrFailure().transform((ids, failure) -> {
+            if (failure != null) {
+                outcomes.recordFailure(failure);
+                return new Ranked(userId, Outcome.FALLBACK, null);
+            }
+            cache.put(userId, ids, depth, version);
+            return new Ranked(userId, inProcess() ? Outcome.LOCAL : Outcome.REMOTE, prefix(ids, count));
+        });
+    }
+
+    // Candidats à froid communs à toute une tranche
+    private Uni<List<Long>> coldCandidates(int count) {
+        if (inProcess()) {
+            return blocking(() -> local().popular(count));
+        }
+        return remoteRecommendationService.coldRecommendations(count)
+                .onFailure().recoverWithUni(failure -> {
+                    outcomes.recordFailure(failure);
+                    return blocking(() -> movieRatingStatsService.topRated(count));
+                });
+    }
+
+    // Une lecture des films pour toute la tranche, puis tirage à froid par utilisateur si besoin
+    private List<UserRecommendations> hydrate(List<Ranked> ranked, List<Long> coldIds, int count) {
+        boolean needsFallback = ranked.stream().anyMatch(r -> r.outcome() == Outcome.FALLBACK);
+        List<Long> fallbackIds = needsFallback ? movieRatingStatsService.topRated(2 * count) : List.of();
+
+        List<Long> ids = new ArrayList<>(coldIds);
+        ids.addAll(fallbackIds);
+        for (Ranked r : ranked) {
+            if (r.ids() != null) {
+                ids.addAll(r.ids());
+            }
+        }
+        Map<Long, Movie> movies = movieHydrationService.hydrateAll(ids);
+        List<Movie> coldMovies = resolve(coldIds, movies);
+        List<Movie> fallbackMovies = resolve(fallbackIds, movies);
+        Map<Long, MovieRatingStat> stats = coldMovies.isEmpty() && fallbackMovies.isEmpty()
+                ? Map.of()
+                : movieRatingStatsService.getAll(new HashSet<>(ids.subList(0, coldIds.size() + fallbackIds.size())));
+
+        List<UserRecommendations> result = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            List<Movie> selection = switch (r.outcome()) {
+                case COLD -> select(coldMovies, stats, count);
+                case FALLBACK -> select(fallbackMovies, stats, count);
+                default -> resolve(r.ids(), movies);
+            };
+            outcomes.record(r.outcome());
+            result.add(new UserRecommendations(r.userId(), r.outcome().name().toLowerCase(), selection));
+        }
+        return result;
     }
 
+    // Films dans l'ordre des identifiants, ceux qui n'existent plus étant ignorés
+    private static List<Movie> resolve(List<Long> ids, Map<Long, Movie> movies) {
+        List<Movie> resolved = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Movie movie = movies.get(id);
+            if (movie != null) {
+                resolved.add(movie);
+            }
+        }
+        return resolved;
+    }
 
+    private record Ranked(Long userId, Outcome outcome, List<Long> ids) {
+    }
 
-}
\ No newline at end of file
+    private Uni<List<Movie>> cold(int count) {
+        if (inProcess()) {
+            return blocking(() -> select(local().popular(2 * count), count, Outcome.COLD));
+        }
+        return remoteRecommendationService.coldRecommendations(2 * count)
+                .onItemOrFailure().transformToUni((candidates, failure) -> failure != null
+                        ? fallback(failure, count)
+                        : blocking(() -> select(candidates, count, Outcome.COLD)));
+    }
+
+    private Uni<List<Movie>> fallback(Throwable failure, int count) {
+        RecommendationOutcomes.Failure cause = outcomes.recordFailure(failure);
+        logger.debugf("API de recommandation en échec (%s), repli sur la sélection locale : %s", cause, failure.toString());
+        return blocking(() -> select(movieRatingStatsService.topRated(2 * count), count, Outcome.FALLBACK));
+    }
+
+    // Tirage par le mécanisme exponentiel parmi les candidats, d'après leur note moyenne
+    private List<Movie> select(List<Long> candidateIds, int count, Outcome outcome) {
+        List<Movie> movies = movieHydrationService.hydrate(candidateIds);
+        // Moyennes lues une fois pour tous les candidats : le mécanisme réévalue l'utilité à chaque tirage
+        Map<Long, MovieRatingStat> stats = movieRatingStatsService
+                .getAll(movies.stream().map(Movie::getId).toList());
+        outcomes.record(outcome);
+        return select(movies, stats, count);
+    }
+
+    // Le mécanisme retire les films tirés de la liste reçue : chaque appel travaille sur sa propre copie
+    private static List<Movie> select(List<Movie> candidates, Map<Long, MovieRatingStat> stats, int count) {
+        Function<Movie, Double> utilityFunction = movie -> Math
+                .abs(stats.get(movie.getId()).mean() - 2.5) / 2.5;
+        ExponentialMechanism selector = new ExponentialMechanism(new ArrayList<>(candidates), utilityFunction);
+        return selector.selectRandomMovies(count);
+    }
+
+    private int depth(int count) {
+        return cacheMaxEntries > 0 ? Math.max(count, cacheDepth) : count;
+    }
+
+    private static List<Long> prefix(List<Long> ranked, int count) {
+        return ranked.subList(0, Math.min(count, ranked.size()));
+    }
+
+    // JPA et calculs locaux hors de la boucle d'événements
+    private static <T> Uni<T> blocking(Supplier<T> supplier) {
+        return Uni.createFrom().item(supplier).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+}
@@ -0,0 +1,39 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.Interface.RecommendedInterface;
+import io.smallrye.faulttolerance.api.AsynchronousNonBlocking;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.List;
+
+/**
+ * Appels non bloquants à l'API de recommandation, encadrés par SmallRye Fault Tolerance :
+ * délai maximal par requête, nombre d'appels simultanés borné et disjoncteur.
+ * Les valeurs des annotations sont surchargeables dans application.properties
+ * ({@code fr.univtln.pegliasco.tp.services.RemoteRecommendationService/Timeout/value}, etc.).
+ * <p>
+ * Aucun repli ici : l'appelant choisit la sélection de secours et compte l'issue de chaque requête.
+ */
+@ApplicationScoped
+@AsynchronousNonBlocking
+@Timeout(2000)
+@Bulkhead(value = 32, waitingTaskQueue = 64)
+@CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 10000, successThreshold = 2)
+public class RemoteRecommendationService {
+
+    @RestClient
+    RecommendedInterface recommendedInterface;
+
+    public Uni<List<Long>> recommendations(Long userId, int count) {
+        return recommendedInterface.getRecommendationsAsync(userId, count);
+    }
+
+    public Uni<List<Long>> coldRecommendations(int count) {
+        return recommendedInterface.getColdRecommendationsAsync(count);
+    }
+}
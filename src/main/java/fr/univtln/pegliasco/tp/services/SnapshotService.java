@@ -0,0 +1,237 @@
+package fr.univtln.pegliasco.tp.services;
+
+import fr.univtln.pegliasco.tp.repository.SnapshotRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Instantanés binaires de la base chargée, pour démarrer une nouvelle instance sans reparser les CSV.
+ * <p>
+ * Un instantané est un répertoire nommé par l'empreinte du jeu de données (contenu des fichiers sources
+ * et schéma de la base) : un fichier {@code COPY ... (FORMAT binary)} compressé par table et un manifeste
+ * (ordre des tables, nombre de lignes, valeurs des séquences). Toute modification d'un CSV ou d'une
+ * entité change l'empreinte, l'ancien instantané est alors ignoré.
+ */
+@ApplicationScoped
+public class SnapshotService {
+    private static final Logger logger = Logger.getLogger(SnapshotService.class);
+    private static final String FORMAT_VERSION = "1";
+    private static final String MANIFEST = "manifest.properties";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Inject
+    DataSource dataSource;
+    @Inject
+    SnapshotRepository snapshotRepository;
+
+    @Inject
+    @ConfigProperty(name = "import.snapshot.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "import.snapshot.directory", defaultValue = "snapshots")
+    String directory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Empreinte du jeu de données : version du format, schéma de la base et contenu des fichiers sources
+    public String fingerprint(Map<String, URL> sources) throws IOException, SQLException {
+        MessageDigest digest = sha256();
+        digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        try (Connection connection = dataSource.getConnection()) {
+            digest.update(snapshotRepository.describeSchema(connection).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (Map.Entry<String, URL> source : sources.entrySet()) {
+            digest.update(source.getKey().getBytes(StandardCharsets.UTF_8));
+            if (source.getValue() == null) {
+                continue;
+            }
+            try (InputStream in = source.getValue().openStream()) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Recharge l'instantané correspondant à l'empreinte dans une base vide, en une transaction.
+     *
+     * @return false si aucun instantané n'existe pour cette empreinte ou si la base contient déjà des données
+     */
+    public boolean restore(String fingerprint) throws IOException, SQLException {
+        Path snapshot = snapshotDirectory(fingerprint);
+        Path manifestFile = snapshot.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifestFile)) {
+            return false;
+        }
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestFile)) {
+            manifest.load(in);
+        }
+        List<String> tables = List.of(manifest.getProperty("tables").split(","));
+
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : tables) {
+                if (!snapshotRepository.isEmpty(connection, table)) {
+                    logger.infof("Table %s non vide : l'instantané %s n'est pas restauré", table, fingerprint);
+                    return false;
+                }
+            }
+
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (String table : tables) {
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(tableFile(snapshot, table)), BUFFER_SIZE)) {
+                        long rows = snapshotRepository.restoreTable(connection, table, in);
+                        logger.debugf("Instantané : %d lignes restaurées dans %s", rows, table);
+                    }
+                }
+                for (String key : manifest.stringPropertyNames()) {
+                    if (key.startsWith("sequence.")) {
+                        snapshotRepository.setSequenceValue(connection, key.substring("sequence.".length()),
+                                Long.parseLong(manifest.getProperty(key)));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+
+            for (String table : tables) {
+                snapshotRepository.analyze(connection, table);
+            }
+        }
+        logger.infof("Instantané %s restauré (%d tables) en %.2fs", fingerprint, tables.size(), (System.nanoTime() - start) / 1e9);
+        return true;
+    }
+
+    /**
+     * Exporte toutes les tables dans un nouvel instantané. Les tables sont lues dans une même transaction
+     * REPEATABLE READ (vue cohérente) et le répertoire n'apparaît sous son nom définitif qu'une fois complet.
+     */
+    public Path export(String fingerprint) throws IOException, SQLException {
+        Path target = snapshotDirectory(fingerprint);
+        if (Files.isRegularFile(target.resolve(MANIFEST))) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+        Path work = Files.createTempDirectory(target.getParent(), fingerprint + ".tmp-");
+
+        long start = System.nanoTime();
+        Properties manifest = new Properties();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                List<String> tables = snapshotRepository.findTablesInDependencyOrder(connection);
+                for (String table : tables) {
+                    try (OutputStream out = new FastGzipOutputStream(Files.newOutputStream(tableFile(work, table)))) {
+                        manifest.setProperty("rows." + table, Long.toString(snapshotRepository.exportTable(connection, table, out)));
+                    }
+                }
+                for (Map.Entry<String, Long> sequence : snapshotRepository.findSequenceValues(connection).entrySet()) {
+                    manifest.setProperty("sequence." + sequence.getKey(), Long.toString(sequence.getValue()));
+                }
+                manifest.setProperty("tables", String.join(",", tables));
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                deleteRecursively(work);
+                throw e;
+            } finally {
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        manifest.setProperty("format", FORMAT_VERSION);
+        manifest.setProperty("fingerprint", fingerprint);
+        manifest.setProperty("created", new Date().toString());
+        try (OutputStream out = Files.newOutputStream(work.resolve(MANIFEST))) {
+            manifest.store(out, "Instantané de la base");
+        }
+
+        try {
+            Files.move(work, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Une autre instance a écrit le même instantané entre-temps
+            deleteRecursively(work);
+            if (!Files.isRegularFile(target.resolve(MANIFEST))) {
+                throw e;
+            }
+        }
+        logger.infof("Instantané %s exporté dans %s en %.2fs", fingerprint, target, (System.nanoTime() - start) / 1e9);
+        return target;
+    }
+
+    private Path snapshotDirectory(String fingerprint) {
+        return Path.of(directory).toAbsolutePath().resolve(fingerprint);
+    }
+
+    private static Path tableFile(Path snapshot, String table) {
+        return snapshot.resolve(table + ".bin.gz");
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (var paths = Files.walk(path)) {
+            for (Path p : paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Compression rapide : l'instantané sert surtout à redémarrer vite
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
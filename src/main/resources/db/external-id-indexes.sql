@@ -0,0 +1,6 @@
+-- Index hash des identifiants externes (links.csv) pour une base existante (database.generation=update ou none),
+-- dont le schéma n'est pas recréé : import.sql n'est exécuté qu'en drop-and-create.
+-- Sans eux, /movie/imdb/{id} et /movie/tmdb/{id} parcourent toute la table movie.
+
+CREATE INDEX IF NOT EXISTS idx_movie_imdb_id ON movie USING hash (imdb_id);
+CREATE INDEX IF NOT EXISTS idx_movie_tmdb_id ON movie USING hash (tmdb_id);
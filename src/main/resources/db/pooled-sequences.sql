@@ -0,0 +1,19 @@
+-- Passage des identifiants IDENTITY aux séquences pooled-lo (pas de 50) pour une base existante
+-- (database.generation=update ou none). Inutile en drop-and-create : Hibernate crée les séquences.
+-- Chaque séquence repart après le plus grand identifiant existant ; la valeur lue est le début d'un bloc.
+
+CREATE SEQUENCE IF NOT EXISTS rating_seq INCREMENT BY 50;
+SELECT setval('rating_seq', COALESCE((SELECT max(id) FROM rating), 0) + 1, false);
+ALTER TABLE rating ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS rating_cache_seq INCREMENT BY 50;
+SELECT setval('rating_cache_seq', COALESCE((SELECT max(id) FROM rating_cache), 0) + 1, false);
+ALTER TABLE rating_cache ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS tag_seq INCREMENT BY 50;
+SELECT setval('tag_seq', COALESCE((SELECT max(id) FROM tag), 0) + 1, false);
+ALTER TABLE tag ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS gender_seq INCREMENT BY 50;
+SELECT setval('gender_seq', COALESCE((SELECT max(id) FROM gender), 0) + 1, false);
+ALTER TABLE gender ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -5,4 +5,8 @@ CREATE INDEX IF NOT EXISTS idx_movie_title_lower ON movie (LOWER(title));
 CREATE EXTENSION IF NOT EXISTS pg_trgm;
 
 -- Crée l’index trigramme pour les recherches LIKE 'mot%'
-CREATE INDEX IF NOT EXISTS idx_movie_title_trgm ON movie USING gin (LOWER(title) gin_trgm_ops);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_movie_title_trgm ON movie USING gin (LOWER(title) gin_trgm_ops);
+
+-- Index hash pour la résolution des identifiants externes (égalité uniquement)
+CREATE INDEX IF NOT EXISTS idx_movie_imdb_id ON movie USING hash (imdb_id);
+CREATE INDEX IF NOT EXISTS idx_movie_tmdb_id ON movie USING hash (tmdb_id);
@@ -0,0 +1,145 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import com.opencsv.CSVParserBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvChunkSourceTest {
+    private static final String CSV = "userId,movieId,rating\n1,10,4.0\n2,20,3.5\n3,30,5.0\n4,40,\"2,5\"\n";
+
+    @Test
+    void skipsHeaderAndSplitsIntoChunks() throws IOException {
+        List<Chunk<List<String[]>>> chunks = readAll(CSV, 2, ImportResume.fresh());
+
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).rows());
+        assertArrayEquals(new String[]{"1", "10", "4.0"}, chunks.get(0).payload().get(0));
+        assertArrayEquals(new String[]{"4", "40", "2,5"}, chunks.get(1).payload().get(1));
+        assertEquals(0L, chunks.get(0).start().byteOffset());
+        assertEquals(chunks.get(0).end().byteOffset(), chunks.get(1).start().byteOffset());
+        assertEquals((long) bytes(CSV).length, chunks.get(1).end().byteOffset());
+        assertEquals(5L, chunks.get(1).end().lineNumber());
+    }
+
+    @Test
+    void hashesConsumedBytes() throws IOException {
+        List<Chunk<List<String[]>>> chunks = readAll(CSV, 2, tracked());
+
+        SourcePosition end = chunks.get(0).end();
+        byte[] consumed = new byte[(int) end.byteOffset()];
+        System.arraycopy(bytes(CSV), 0, consumed, 0, consumed.length);
+        assertEquals(sha256(consumed), end.contentHash());
+        assertEquals(sha256(bytes(CSV)), chunks.get(1).end().contentHash());
+    }
+
+    @Test
+    void skipsHashingWithoutCheckpoints() throws IOException {
+        List<Chunk<List<String[]>>> chunks = readAll(CSV, 2, ImportResume.fresh());
+
+        assertNull(chunks.get(0).end().contentHash());
+        assertNull(chunks.get(1).end().contentHash());
+        assertEquals((long) bytes(CSV).length, chunks.get(1).end().byteOffset());
+    }
+
+    @Test
+    void resumesAfterCommittedPosition() throws IOException {
+        SourcePosition committed = readAll(CSV, 2, tracked()).get(0).end();
+
+        List<Chunk<List<String[]>>> chunks = readAll(CSV, 2, new ImportResume(committed, new TreeMap<>()));
+
+        assertEquals(1, chunks.size());
+        assertEquals("3", chunks.get(0).payload().get(0)[0]);
+        assertEquals(committed.byteOffset(), chunks.get(0).start().byteOffset());
+    }
+
+    @Test
+    void skipsBatchesCommittedOutOfOrder() throws IOException {
+        List<Chunk<List<String[]>>> single = readAll(CSV, 1, tracked());
+        TreeMap<Long, SourcePosition> committed = new TreeMap<>();
+        committed.put(single.get(1).start().byteOffset(), single.get(1).end());
+        committed.put(single.get(3).start().byteOffset(), single.get(3).end());
+
+        List<Chunk<List<String[]>>> chunks = readAll(CSV, 10, new ImportResume(single.get(0).end(), committed));
+
+        List<String> users = new ArrayList<>();
+        for (Chunk<List<String[]>> chunk : chunks) {
+            for (String[] row : chunk.payload()) {
+                users.add(row[0]);
+            }
+        }
+        assertEquals(List.of("3"), users);
+    }
+
+    @Test
+    void refusesFileModifiedBeforeResumePosition() throws IOException {
+        SourcePosition committed = readAll(CSV, 2, tracked()).get(0).end();
+        String modified = CSV.replace("1,10,4.0", "1,10,1.0");
+
+        assertThrows(IOException.class,
+                () -> readAll(modified, 2, new ImportResume(committed, new TreeMap<>())));
+    }
+
+    @Test
+    void refusesTruncatedFile() throws IOException {
+        SourcePosition committed = readAll(CSV, 2, tracked()).get(1).end();
+        String truncated = CSV.substring(0, CSV.indexOf("3,30"));
+
+        assertThrows(IOException.class,
+                () -> readAll(truncated, 2, new ImportResume(committed, new TreeMap<>())));
+    }
+
+    @Test
+    void returnsNothingForHeaderOnly() throws IOException {
+        try (CsvChunkSource source = source("userId,movieId,rating\n", 2, ImportResume.fresh())) {
+            assertNull(source.next());
+        }
+    }
+
+    // Lecture d'un import suivi par points de reprise, depuis le début
+    private static ImportResume tracked() {
+        return new ImportResume(SourcePosition.START, new TreeMap<>());
+    }
+
+    private static List<Chunk<List<String[]>>> readAll(String csv, int chunkSize, ImportResume resume)
+            throws IOException {
+        List<Chunk<List<String[]>>> chunks = new ArrayList<>();
+        try (CsvChunkSource source = source(csv, chunkSize, resume)) {
+            Chunk<List<String[]>> chunk;
+            while ((chunk = source.next()) != null) {
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    private static CsvChunkSource source(String csv, int chunkSize, ImportResume resume) {
+        return new CsvChunkSource(new ByteArrayInputStream(bytes(csv)), new CSVParserBuilder().build(), chunkSize,
+                resume);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
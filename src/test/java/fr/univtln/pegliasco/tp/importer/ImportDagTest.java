@@ -0,0 +1,107 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportDagTest {
+    private ExecutorService executor;
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsStagesAfterTheirDependencies() {
+        ImportDag dag = new ImportDag("test", executor)
+                .stage("movies", record("movies"))
+                .stage("accounts", record("accounts"))
+                .stage("ratings", record("ratings"), "movies", "accounts")
+                .stage("elastic", record("elastic"), "ratings");
+
+        dag.run();
+
+        assertEquals(4, ran.size());
+        assertTrue(ran.indexOf("ratings") > ran.indexOf("movies"));
+        assertTrue(ran.indexOf("ratings") > ran.indexOf("accounts"));
+        assertEquals("elastic", ran.get(3));
+        assertEquals(ImportDag.Status.SUCCEEDED, dag.getStatus("elastic"));
+    }
+
+    @Test
+    void runsIndependentStagesInParallel() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ImportTask waitForOther = progress -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Étapes indépendantes exécutées l'une après l'autre");
+            }
+        };
+        ImportDag dag = new ImportDag("test", executor)
+                .stage("ratings", waitForOther)
+                .stage("tags", waitForOther);
+
+        dag.run();
+
+        assertEquals(ImportDag.Status.SUCCEEDED, dag.getStatus("ratings"));
+        assertEquals(ImportDag.Status.SUCCEEDED, dag.getStatus("tags"));
+    }
+
+    @Test
+    void skipsDependentsOfFailedStageAndCompletesOtherBranches() {
+        IllegalStateException failure = new IllegalStateException("COPY refusé");
+        ImportDag dag = new ImportDag("test", executor)
+                .stage("movies", record("movies"))
+                .stage("ratings", progress -> {
+                    throw failure;
+                }, "movies")
+                .stage("stats", record("stats"), "ratings")
+                .stage("elastic", record("elastic"), "stats")
+                .stage("links", record("links"), "movies");
+
+        ImportException error = assertThrows(ImportException.class, dag::run);
+
+        assertSame(failure, error.getCause());
+        assertEquals(ImportDag.Status.SUCCEEDED, dag.getStatus("movies"));
+        assertEquals(ImportDag.Status.FAILED, dag.getStatus("ratings"));
+        assertEquals(ImportDag.Status.SKIPPED, dag.getStatus("stats"));
+        assertEquals(ImportDag.Status.SKIPPED, dag.getStatus("elastic"));
+        assertEquals(ImportDag.Status.SUCCEEDED, dag.getStatus("links"));
+        assertFalse(ran.contains("stats"));
+        assertFalse(ran.contains("elastic"));
+        assertTrue(ran.contains("links"));
+    }
+
+    @Test
+    void rejectsUnknownOrDuplicateStages() {
+        ImportDag dag = new ImportDag("test", executor).stage("movies", record("movies"));
+
+        assertThrows(IllegalArgumentException.class, () -> dag.stage("ratings", record("ratings"), "accounts"));
+        assertThrows(IllegalArgumentException.class, () -> dag.stage("movies", record("movies")));
+    }
+
+    private ImportTask record(String stage) {
+        return progress -> ran.add(stage);
+    }
+}
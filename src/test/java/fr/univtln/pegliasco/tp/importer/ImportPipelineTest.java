@@ -0,0 +1,96 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImportPipelineTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createExecutor() {
+        executor = Executors.newFixedThreadPool(6);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void forwardsFullyRejectedChunksToWriters() {
+        // Le deuxième paquet ne contient que des lignes rejetées
+        Set<Long> written = new ConcurrentSkipListSet<>();
+        ImportProgress progress = new ImportPipeline("test", executor, 2, 2, 2).run(
+                source(List.of(1, 2), List.of(-1, -2), List.of(3)),
+                (rows, p) -> {
+                    List<Integer> kept = new ArrayList<>();
+                    for (Integer row : rows) {
+                        if (row < 0) {
+                            p.reject();
+                        } else {
+                            kept.add(row);
+                        }
+                    }
+                    return kept;
+                },
+                chunk -> {
+                    written.add(chunk.start().byteOffset());
+                    return chunk.payload().size();
+                });
+
+        assertEquals(new TreeSet<>(List.of(0L, 10L, 20L)), written);
+        assertEquals(5, progress.getRowsRead());
+        assertEquals(3, progress.getRowsWritten());
+        assertEquals(2, progress.getRowsRejected());
+    }
+
+    @Test
+    void propagatesWriterFailure() {
+        IllegalStateException failure = new IllegalStateException("COPY refusé");
+
+        ImportException error = assertThrows(ImportException.class, () -> new ImportPipeline("test", executor, 2, 2, 2)
+                .run(source(List.of(1), List.of(2)), (rows, p) -> rows, chunk -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, error.getCause());
+    }
+
+    // Paquets de 10 octets chacun, dans l'ordre donné
+    @SafeVarargs
+    private static ChunkSource<List<Integer>> source(List<Integer>... chunks) {
+        Iterator<List<Integer>> iterator = List.of(chunks).iterator();
+        return new ChunkSource<>() {
+            private long seq;
+
+            @Override
+            public Chunk<List<Integer>> next() {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                List<Integer> rows = iterator.next();
+                SourcePosition start = new SourcePosition(seq * 10, seq, null);
+                SourcePosition end = new SourcePosition(seq * 10 + 10, seq + 1, null);
+                return new Chunk<>(seq++, rows.size(), rows, start, end);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
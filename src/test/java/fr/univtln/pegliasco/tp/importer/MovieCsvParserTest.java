@@ -0,0 +1,78 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import fr.univtln.pegliasco.tp.model.Gender;
+import fr.univtln.pegliasco.tp.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieCsvParserTest {
+    private final MovieCsvParser parser = new MovieCsvParser(MovieCsvParserTest::gender);
+
+    @Test
+    void detectsEachDateFormat() {
+        assertEquals(LocalDate.of(1995, 11, 22), localDate(parser.parseDate("22 Nov 1995")));
+        assertEquals(LocalDate.of(1995, 12, 29), localDate(parser.parseDate("1995-12-29")));
+        assertEquals(LocalDate.of(1995, 12, 29), localDate(parser.parseDate("1995/12/29")));
+    }
+
+    @Test
+    void keepsDetectingAfterFormatChange() {
+        assertEquals(LocalDate.of(2001, 3, 4), localDate(parser.parseDate("2001-03-04")));
+        assertEquals(LocalDate.of(2001, 3, 4), localDate(parser.parseDate("04 Mar 2001")));
+        assertEquals(LocalDate.of(2001, 3, 4), localDate(parser.parseDate("2001/03/04")));
+        assertEquals(LocalDate.of(2001, 3, 4), localDate(parser.parseDate("2001-03-04")));
+    }
+
+    @Test
+    void returnsNullForMissingOrInvalidDates() {
+        assertNull(parser.parseDate(""));
+        assertNull(parser.parseDate("Unknown"));
+        assertNull(parser.parseDate("N/A"));
+        assertNull(parser.parseDate("31 Feb 1995"));
+        assertNull(parser.parseDate("1995-13-01"));
+    }
+
+    @Test
+    void parsesCreatedCatalogLine() {
+        Movie movie = parser.parse(new String[]{"1", " Toy Story ", "22 Nov 1995", "81", "Animation|Comedy",
+                "John Lasseter", "Joss Whedon|Andrew Stanton", "Tom Hanks||Tim Allen", "Toys come alive.", "USA",
+                "https://example.org/toy-story.jpg"});
+
+        assertEquals(Long.valueOf(1), movie.getId());
+        assertEquals("Toy Story", movie.getTitle());
+        assertEquals(LocalDate.of(1995, 11, 22), localDate(movie.getYear()));
+        assertEquals(Integer.valueOf(81), movie.getRuntime());
+        assertEquals(List.of("Animation", "Comedy"), movie.getGenders().stream().map(Gender::getName).toList());
+        assertEquals(List.of("Joss Whedon", "Andrew Stanton"), movie.getWriters());
+        assertEquals(List.of("Tom Hanks", "Tim Allen"), movie.getActors());
+    }
+
+    @Test
+    void takesMovieLensYearFromTitle() {
+        Movie movie = parser.parse(new String[]{"2", "Jumanji (1995)", "Adventure|Children|Fantasy"});
+        Movie withoutYear = parser.parse(new String[]{"3", "Unknown Year", "(no genres listed)"});
+
+        assertEquals("Jumanji", movie.getTitle());
+        assertEquals(LocalDate.of(1995, 1, 1), localDate(movie.getYear()));
+        assertEquals(3, movie.getGenders().size());
+        assertEquals("Unknown Year", withoutYear.getTitle());
+        assertEquals(0, withoutYear.getGenders().size());
+    }
+
+    private static Gender gender(String name) {
+        Gender gender = new Gender();
+        gender.setName(name);
+        return gender;
+    }
+
+    private static LocalDate localDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
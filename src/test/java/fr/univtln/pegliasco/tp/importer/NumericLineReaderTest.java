@@ -0,0 +1,116 @@
+package fr.univtln.pegliasco.tp.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumericLineReaderTest {
+
+    @Test
+    void readsRatingLine() {
+        NumericLineReader line = reader("1,31,2.5,1260759144\n");
+
+        assertTrue(line.hasNext());
+        assertEquals(1L, line.nextLong());
+        assertEquals(31L, line.nextLong());
+        assertEquals(2.5f, line.nextFloat());
+        assertEquals(1260759144L, line.nextLong());
+        assertTrue(line.endLine());
+        assertFalse(line.hasNext());
+    }
+
+    @Test
+    void readsLastLineWithoutNewlineAndCarriageReturns() {
+        NumericLineReader line = reader("\r\n\n7,8,-0.5\r\n9,10,4");
+
+        assertTrue(line.hasNext());
+        assertEquals(7L, line.nextLong());
+        assertEquals(8L, line.nextLong());
+        assertEquals(-0.5f, line.nextFloat());
+        assertTrue(line.endLine());
+        assertTrue(line.hasNext());
+        assertEquals(9L, line.nextLong());
+        assertEquals(10L, line.nextLong());
+        assertEquals(4f, line.nextFloat());
+        assertTrue(line.endLine());
+        assertFalse(line.hasNext());
+    }
+
+    @Test
+    void fallsBackToFloatParsingForExponents() {
+        NumericLineReader line = reader("1e1,.5\n");
+
+        assertEquals(10f, line.nextFloat());
+        assertEquals(0.5f, line.nextFloat());
+        assertTrue(line.endLine());
+    }
+
+    @Test
+    void rejectsMalformedLineAndResumesOnNextOne() {
+        NumericLineReader line = reader("1,abc,3.0,5\n2,3,4.0,6\n");
+
+        line.nextLong();
+        line.nextLong();
+        line.nextFloat();
+        line.nextLong();
+        assertFalse(line.endLine());
+
+        assertEquals(2L, line.nextLong());
+        assertEquals(3L, line.nextLong());
+        assertEquals(4f, line.nextFloat());
+        assertEquals(6L, line.nextLong());
+        assertTrue(line.endLine());
+    }
+
+    @Test
+    void rejectsMissingFieldAndOverflow() {
+        NumericLineReader missing = reader("1,2\n");
+        missing.nextLong();
+        missing.nextLong();
+        missing.nextFloat();
+        assertFalse(missing.endLine());
+
+        NumericLineReader overflow = reader("1234567890123456789,2\n");
+        overflow.nextLong();
+        assertEquals(2L, overflow.nextLong());
+        assertFalse(overflow.endLine());
+    }
+
+    @Test
+    void readsQuotedTextWithSeparatorsAndEscapedQuotes() {
+        NumericLineReader line = reader("15,339,\"sandra \"\"boring\"\" bullock, again\",1138537770\n3,4,plain,5\n");
+
+        assertEquals(15L, line.nextLong());
+        assertEquals(339L, line.nextLong());
+        assertEquals("sandra \"boring\" bullock, again", line.nextText());
+        assertEquals(1138537770L, line.nextLong());
+        assertTrue(line.endLine());
+
+        line.nextLong();
+        line.nextLong();
+        assertEquals("plain", line.nextText());
+        assertEquals(5L, line.nextLong());
+        assertTrue(line.endLine());
+    }
+
+    @Test
+    void ignoresExtraFields() {
+        NumericLineReader line = reader("1,2,extra,fields\n3,4\n");
+
+        assertEquals(1L, line.nextLong());
+        assertEquals(2L, line.nextLong());
+        assertTrue(line.endLine());
+        assertEquals(3L, line.nextLong());
+        assertEquals(4L, line.nextLong());
+        assertTrue(line.endLine());
+    }
+
+    private static NumericLineReader reader(String text) {
+        return new NumericLineReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,122 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import fr.univtln.pegliasco.tp.importer.RatingBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlsTrainerTest {
+    private static final int USERS = 40;
+    private static final int ITEMS = 25;
+    private static final int RANK = 2;
+
+    private ForkJoinPool pool;
+    private RatingBatch ratings;
+
+    @BeforeEach
+    void createLowRankRatings() {
+        pool = new ForkJoinPool(2);
+        // Notes 1 + <u, v> d'un modèle de rang 2, toutes comprises entre 1 et 5
+        Random random = new Random(7);
+        float[][] users = randomFactors(random, USERS);
+        float[][] items = randomFactors(random, ITEMS);
+        ratings = new RatingBatch(USERS * ITEMS);
+        for (int u = 0; u < USERS; u++) {
+            for (int i = 0; i < ITEMS; i++) {
+                float rate = 1;
+                for (int f = 0; f < RANK; f++) {
+                    rate += users[u][f] * items[i][f];
+                }
+                ratings.add(100 + u, 1000 + i, rate, 0);
+            }
+        }
+    }
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void convergesOnLowRankMatrix() {
+        double afterOne = rmse(train(1));
+        double afterTwenty = rmse(train(20));
+
+        assertTrue(afterTwenty < afterOne, "RMSE " + afterTwenty + " après 20 itérations, " + afterOne + " après 1");
+        assertTrue(afterTwenty < 0.1, "RMSE d'entraînement trop élevée : " + afterTwenty);
+    }
+
+    @Test
+    void keepsIdentifiersAndRatedItems() {
+        AlsModel model = train(2);
+
+        assertEquals(USERS, model.getUserCount());
+        assertEquals(ITEMS, model.getItemCount());
+        assertEquals(4, model.getFactors());
+        assertEquals(ITEMS, model.ratedItems(100).length);
+        assertEquals(4, model.userVector(100 + USERS - 1).length);
+        assertNull(model.userVector(99));
+        assertEquals(0, model.ratedItems(99).length);
+    }
+
+    @Test
+    void isDeterministicForSameSeed() {
+        AlsModel first = train(5);
+        AlsModel second = train(5);
+
+        assertArrayEquals(first.userVector(117), second.userVector(117));
+        assertArrayEquals(toArray(first.itemFactors()), toArray(second.itemFactors()));
+    }
+
+    private AlsModel train(int iterations) {
+        AlsTrainer.Params params = new AlsTrainer.Params(4, iterations, 0.01f, false, 40, 42L);
+        return new AlsTrainer(params, pool).train(RatingMatrix.of(ratings), 1);
+    }
+
+    private double rmse(AlsModel model) {
+        int k = model.getFactors();
+        float[] items = toArray(model.itemFactors());
+        long[] itemIds = new long[model.getItemCount()];
+        model.itemIds().get(itemIds);
+        LongIntMap itemIndex = new LongIntMap(itemIds.length);
+        for (int item = 0; item < itemIds.length; item++) {
+            itemIndex.put(itemIds[item], item);
+        }
+        double squares = 0;
+        for (int i = 0; i < ratings.size(); i++) {
+            float[] user = model.userVector(ratings.accountId(i));
+            int item = itemIndex.get(ratings.movieId(i));
+            double prediction = 0;
+            for (int f = 0; f < k; f++) {
+                prediction += user[f] * items[item * k + f];
+            }
+            squares += (prediction - ratings.rate(i)) * (prediction - ratings.rate(i));
+        }
+        return Math.sqrt(squares / ratings.size());
+    }
+
+    private static float[][] randomFactors(Random random, int count) {
+        float[][] factors = new float[count][RANK];
+        for (float[] vector : factors) {
+            for (int f = 0; f < RANK; f++) {
+                vector[f] = (float) (random.nextDouble() * 1.4);
+            }
+        }
+        return factors;
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] array = new float[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+}
@@ -0,0 +1,141 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+    private static final int MOVIES = 2000;
+    private static final int DIMS = 16;
+    private static final int CLUSTERS = 20;
+    private static final int QUERIES = 100;
+    private static final int COUNT = 10;
+
+    private HnswIndex index;
+    private float[][] queries;
+
+    @BeforeEach
+    void buildIndex() {
+        // Vecteurs groupés autour de centres, comme des facteurs ALS de films
+        Random random = new Random(42);
+        float[][] centres = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centres[c] = gaussian(random, 1);
+        }
+        index = new HnswIndex(DIMS, 16, 200, MOVIES, 42);
+        for (int movie = 0; movie < MOVIES; movie++) {
+            float[] centre = centres[random.nextInt(CLUSTERS)];
+            float[] noise = gaussian(random, 0.7);
+            for (int f = 0; f < DIMS; f++) {
+                noise[f] += centre[f];
+            }
+            index.add(10_000 + movie, noise);
+        }
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = gaussian(random, 1);
+        }
+    }
+
+    @Test
+    void searchRecallsMostExactNeighbours() {
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Long> expected = new HashSet<>(index.exact(query, COUNT, id -> false));
+            for (Long id : index.search(query, COUNT, 100, id -> false)) {
+                if (expected.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        double recall = found / (double) (QUERIES * COUNT);
+        assertTrue(recall >= 0.9, "Rappel@" + COUNT + " de " + recall);
+    }
+
+    @Test
+    void exactRanksByDotProductAndHonoursExclusions() {
+        float[] query = queries[0];
+        List<Long> ranked = index.exact(query, COUNT, id -> false);
+        List<Long> filtered = index.exact(query, COUNT, id -> id == ranked.get(0));
+
+        assertEquals(COUNT, ranked.size());
+        for (int i = 1; i < ranked.size(); i++) {
+            assertTrue(dot(query, index.vector(ranked.get(i - 1))) >= dot(query, index.vector(ranked.get(i))));
+        }
+        assertFalse(filtered.contains(ranked.get(0)));
+        assertEquals(ranked.subList(1, COUNT), filtered.subList(0, COUNT - 1));
+        assertFalse(index.search(query, COUNT, 100, id -> id == ranked.get(0)).contains(ranked.get(0)));
+    }
+
+    @Test
+    void roundTripsThroughWriteToAndReadFrom() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        HnswIndex read = HnswIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 42);
+
+        assertEquals(index.size(), read.size());
+        assertEquals(DIMS, read.getDims());
+        assertArrayEquals(index.vector(10_123), read.vector(10_123));
+        for (float[] query : queries) {
+            assertEquals(index.search(query, COUNT, 50, id -> false), read.search(query, COUNT, 50, id -> false));
+        }
+        // Un index relu accepte de nouvelles insertions
+        float[] added = gaussian(new Random(1), 1);
+        assertTrue(read.add(99, added));
+        assertEquals(List.of(99L), read.search(added, 1, 100, id -> id != 99));
+    }
+
+    @Test
+    void rejectsCorruptedStream() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThrows(IOException.class,
+                () -> HnswIndex.readFrom(new DataInputStream(new ByteArrayInputStream(garbage)), 42));
+    }
+
+    @Test
+    void addsOnceAndUpdatesInPlace() {
+        float[] vector = new float[DIMS];
+        vector[0] = 1;
+
+        assertFalse(index.add(10_000, vector));
+        assertTrue(index.update(10_000, vector));
+        assertArrayEquals(vector, index.vector(10_000));
+        assertFalse(index.update(1, vector));
+        assertNull(index.vector(1));
+        assertThrows(IllegalArgumentException.class, () -> index.add(1, new float[DIMS + 1]));
+    }
+
+    private static float[] gaussian(Random random, double scale) {
+        float[] vector = new float[DIMS];
+        for (int f = 0; f < DIMS; f++) {
+            vector[f] = (float) (random.nextGaussian() * scale);
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int f = 0; f < a.length; f++) {
+            sum += a[f] * b[f];
+        }
+        return sum;
+    }
+}
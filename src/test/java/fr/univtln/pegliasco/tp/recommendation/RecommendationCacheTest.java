@@ -0,0 +1,114 @@
+package fr.univtln.pegliasco.tp.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecommendationCacheTest {
+    private static final long TTL = TimeUnit.MINUTES.toNanos(10);
+
+    @Test
+    void servesPrefixesOfCachedList() {
+        RecommendationCache cache = new RecommendationCache(10, TTL);
+        cache.put(1, ids(10), 10, cache.version());
+
+        assertEquals(ids(5), cache.get(1, 5));
+        assertEquals(ids(10), cache.get(1, 10));
+        assertNull(cache.get(1, 20));
+        assertNull(cache.get(2, 5));
+
+        RecommendationCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void servesLargerRequestsFromCompleteShortList() {
+        RecommendationCache cache = new RecommendationCache(10, TTL);
+        // Le moteur n'avait que 3 films à proposer sur 10 demandés
+        cache.put(1, ids(3), 10, cache.version());
+
+        assertEquals(ids(3), cache.get(1, 20));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        RecommendationCache cache = new RecommendationCache(2, TTL);
+        cache.put(1, ids(3), 3, cache.version());
+        cache.put(2, ids(3), 3, cache.version());
+        // L'accès rend l'utilisateur 1 plus récent que le 2
+        assertNotNull(cache.get(1, 3));
+        cache.put(3, ids(3), 3, cache.version());
+
+        assertNotNull(cache.get(1, 3));
+        assertNull(cache.get(2, 3));
+        assertNotNull(cache.get(3, 3));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() throws InterruptedException {
+        RecommendationCache cache = new RecommendationCache(10, TimeUnit.MILLISECONDS.toNanos(1));
+        cache.put(1, ids(3), 3, cache.version());
+        Thread.sleep(5);
+
+        assertNull(cache.get(1, 3));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void dropsListComputedBeforeInvalidation() {
+        RecommendationCache cache = new RecommendationCache(10, TTL);
+        long before = cache.version();
+        cache.invalidate(1);
+        cache.put(1, ids(3), 3, before);
+        assertNull(cache.get(1, 3));
+
+        long beforeAll = cache.version();
+        cache.invalidateAll();
+        cache.put(2, ids(3), 3, beforeAll);
+        assertNull(cache.get(2, 3));
+
+        cache.put(2, ids(3), 3, cache.version());
+        assertEquals(ids(3), cache.get(2, 3));
+    }
+
+    @Test
+    void countsInvalidatedEntries() {
+        RecommendationCache cache = new RecommendationCache(10, TTL);
+        cache.put(1, ids(3), 3, cache.version());
+        cache.put(2, ids(3), 3, cache.version());
+        cache.put(3, ids(3), 3, cache.version());
+
+        cache.invalidate(1);
+        cache.invalidate(1);
+        assertNull(cache.get(1, 3));
+        cache.invalidateAll();
+
+        assertEquals(3, cache.stats().invalidations());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void storesNothingWhenDisabled() {
+        RecommendationCache cache = new RecommendationCache(0, TTL);
+        cache.put(1, ids(3), 3, cache.version());
+
+        assertNull(cache.get(1, 3));
+        assertEquals(0, cache.stats().size());
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    private static List<Long> ids(int count) {
+        return LongStream.rangeClosed(1, count).boxed().toList();
+    }
+}